@@ -0,0 +1,45 @@
+package hudson.plugins.pmd.parser;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs all benchmarks of the parse, convert and serialize pipeline. Besides the throughput, the allocation rate is
+ * reported by the GC profiler. Start the benchmarks with:
+ *
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec
+ * </pre>
+ *
+ * Additional JMH command line options (e.g. {@code -p violations=1000}) can be passed using
+ * {@code -Dbenchmark.args="..."}.
+ *
+ * @author Ulli Hafner
+ */
+public final class BenchmarkRunner {
+    /**
+     * Runs the benchmarks.
+     *
+     * @param args
+     *            JMH command line options
+     * @throws RunnerException
+     *             if a benchmark failed
+     * @throws CommandLineOptionException
+     *             if the options are invalid
+     */
+    public static void main(final String[] args) throws RunnerException, CommandLineOptionException {
+        new Runner(new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .include(BenchmarkRunner.class.getPackage().getName() + ".*Benchmark")
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+
+    private BenchmarkRunner() {
+        // prevents instantiation
+    }
+}
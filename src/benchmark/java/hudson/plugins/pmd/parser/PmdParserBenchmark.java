@@ -0,0 +1,139 @@
+package hudson.plugins.pmd.parser;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.IOUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import hudson.plugins.analysis.util.model.FileAnnotation;
+
+/**
+ * Measures the parsing of PMD reports: reading the digester object graph, converting it to annotations and the
+ * streaming parser that combines both steps.
+ *
+ * @author Ulli Hafner
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PmdParserBenchmark {
+    /** Number of violations in the report. */
+    @Param({"1000", "10000", "100000", "1000000"})
+    private int violations;
+
+    private File report;
+    private Pmd tree;
+
+    /**
+     * Creates the report and the object graph for the conversion benchmark.
+     *
+     * @throws IOException
+     *             if the report could not be created
+     * @throws InvocationTargetException
+     *             if the report could not be parsed
+     */
+    @Setup(Level.Trial)
+    public void createReport() throws IOException, InvocationTargetException {
+        report = SyntheticReport.create(violations);
+        InputStream input = open();
+        try {
+            tree = new PmdParser().readTree(input);
+        }
+        finally {
+            IOUtils.closeQuietly(input);
+        }
+    }
+
+    /**
+     * Reads the report into the digester object graph.
+     *
+     * @return the object graph
+     * @throws IOException
+     *             if the report could not be read
+     * @throws InvocationTargetException
+     *             if the report could not be parsed
+     */
+    @Benchmark
+    public Pmd readTree() throws IOException, InvocationTargetException {
+        InputStream input = open();
+        try {
+            return new PmdParser().readTree(input);
+        }
+        finally {
+            IOUtils.closeQuietly(input);
+        }
+    }
+
+    /**
+     * Converts the digester object graph into annotations.
+     *
+     * @return the annotations
+     */
+    @Benchmark
+    public Collection<FileAnnotation> convert() {
+        return new PmdParser().convert(tree, "module");
+    }
+
+    /**
+     * Parses the report with the digester.
+     *
+     * @return the annotations
+     * @throws IOException
+     *             if the report could not be read
+     * @throws InvocationTargetException
+     *             if the report could not be parsed
+     */
+    @Benchmark
+    public Collection<FileAnnotation> parse() throws IOException, InvocationTargetException {
+        return parse(new PmdParser("UTF-8", false));
+    }
+
+    /**
+     * Parses the report with the streaming parser.
+     *
+     * @return the annotations
+     * @throws IOException
+     *             if the report could not be read
+     * @throws InvocationTargetException
+     *             if the report could not be parsed
+     */
+    @Benchmark
+    public Collection<FileAnnotation> parseStreaming() throws IOException, InvocationTargetException {
+        return parse(new PmdParser("UTF-8", true));
+    }
+
+    private Collection<FileAnnotation> parse(final PmdParser parser) throws IOException, InvocationTargetException {
+        InputStream input = open();
+        try {
+            return parser.parse(input, "module");
+        }
+        finally {
+            IOUtils.closeQuietly(input);
+        }
+    }
+
+    private InputStream open() throws IOException {
+        return new BufferedInputStream(new FileInputStream(report));
+    }
+}
@@ -0,0 +1,116 @@
+package hudson.plugins.pmd.parser;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.IOUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.thoughtworks.xstream.XStream;
+
+import hudson.XmlFile;
+import hudson.plugins.analysis.util.model.AnnotationStream;
+import hudson.plugins.analysis.util.model.FileAnnotation;
+
+/**
+ * Measures the serialization of the annotations to the XML file of a build (see
+ * {@code PmdResult#serializeAnnotations}) and the deserialization of this file. The annotations are written either
+ * with the default converters of XStream, as by previous releases, or with the {@link CompactAnnotationsConverter}
+ * that is used by {@code PmdResult}.
+ *
+ * @author Ulli Hafner
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SerializationBenchmark {
+    /** Number of violations in the report. */
+    @Param({"1000", "10000", "100000", "1000000"})
+    private int violations;
+    /** Format of the XML file: the default format of XStream or the compact bug table. */
+    @Param({"xstream", CompactAnnotationsConverter.COMPACT_FORMAT})
+    private String format;
+
+    private FileAnnotation[] annotations;
+    private XmlFile serialized;
+    private XmlFile target;
+
+    /**
+     * Creates the annotations and the serialized annotations for the deserialization benchmark.
+     *
+     * @throws IOException
+     *             if the files could not be created
+     * @throws InvocationTargetException
+     *             if the report could not be parsed
+     */
+    @Setup(Level.Trial)
+    public void createAnnotations() throws IOException, InvocationTargetException {
+        File report = SyntheticReport.create(violations);
+        InputStream input = report.toURI().toURL().openStream();
+        try {
+            Collection<FileAnnotation> parsed = new PmdParser().parse(input, "module");
+            annotations = parsed.toArray(new FileAnnotation[parsed.size()]);
+        }
+        finally {
+            IOUtils.closeQuietly(input);
+        }
+
+        XStream xstream = new AnnotationStream();
+        xstream.alias("bug", Bug.class);
+        if (CompactAnnotationsConverter.COMPACT_FORMAT.equals(format)) {
+            xstream.registerConverter(new CompactAnnotationsConverter(xstream.getMapper()),
+                    XStream.PRIORITY_VERY_HIGH);
+        }
+
+        serialized = createXmlFile(xstream, "pmd-warnings");
+        serialized.write(annotations);
+        target = createXmlFile(xstream, "pmd-warnings-target");
+    }
+
+    private XmlFile createXmlFile(final XStream xstream, final String prefix) throws IOException {
+        File file = File.createTempFile(prefix, ".xml");
+        file.deleteOnExit();
+        return new XmlFile(xstream, file);
+    }
+
+    /**
+     * Serializes the annotations.
+     *
+     * @throws IOException
+     *             if the file could not be written
+     */
+    @Benchmark
+    public void serialize() throws IOException {
+        target.write(annotations);
+    }
+
+    /**
+     * Deserializes the annotations.
+     *
+     * @return the annotations
+     * @throws IOException
+     *             if the file could not be read
+     */
+    @Benchmark
+    public Object deserialize() throws IOException {
+        return serialized.read();
+    }
+}
@@ -0,0 +1,76 @@
+package hudson.plugins.pmd.parser;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Generates synthetic PMD reports with a given number of violations. The violations are spread over files with
+ * 20 violations each, 10 files share the same package. Rule and rule set names are taken from small fixed sets,
+ * just like in real reports.
+ *
+ * @author Ulli Hafner
+ */
+public final class SyntheticReport {
+    private static final int VIOLATIONS_PER_FILE = 20;
+    private static final int FILES_PER_PACKAGE = 10;
+    private static final int NUMBER_OF_RULE_SETS = 8;
+    private static final int RULES_PER_RULE_SET = 12;
+    private static final int PRIORITIES = 5;
+
+    /**
+     * Creates a new report file with the specified number of violations.
+     *
+     * @param numberOfViolations
+     *            the number of violations
+     * @return the report file, will be deleted on exit
+     * @throws IOException
+     *             if the file could not be written
+     */
+    public static File create(final int numberOfViolations) throws IOException {
+        File report = File.createTempFile("pmd-benchmark", ".xml");
+        report.deleteOnExit();
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(report), "UTF-8"));
+        try {
+            writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+            writer.write("<pmd version=\"5.7.0\" timestamp=\"2017-06-01T12:00:00.000\">\n");
+            for (int violation = 0; violation < numberOfViolations; violation++) {
+                int file = violation / VIOLATIONS_PER_FILE;
+                if (violation % VIOLATIONS_PER_FILE == 0) {
+                    if (violation > 0) {
+                        writer.write("</file>\n");
+                    }
+                    writer.write(String.format("<file name=\"/workspace/module/src/main/java/com/example/p%d/Class%d.java\">%n",
+                            file / FILES_PER_PACKAGE, file));
+                }
+                int ruleSet = violation % NUMBER_OF_RULE_SETS;
+                int rule = violation % RULES_PER_RULE_SET;
+                int line = violation % VIOLATIONS_PER_FILE * 10 + 1;
+                writer.write(String.format("<violation beginline=\"%d\" endline=\"%d\" begincolumn=\"5\" endcolumn=\"42\" "
+                        + "rule=\"Rule%d%d\" ruleset=\"Rule Set %d\" package=\"com.example.p%d\" class=\"Class%d\" "
+                        + "externalInfoUrl=\"https://pmd.github.io/pmd-5.7.0/pmd-java/rules/java/set%d.html#Rule%d%d\" "
+                        + "priority=\"%d\">%nAvoid doing thing number %d here%n</violation>%n",
+                        line, line + 2, ruleSet, rule, ruleSet, file / FILES_PER_PACKAGE, file,
+                        ruleSet, ruleSet, rule, violation % PRIORITIES + 1, rule));
+            }
+            if (numberOfViolations > 0) {
+                writer.write("</file>\n");
+            }
+            writer.write("</pmd>\n");
+        }
+        finally {
+            IOUtils.closeQuietly(writer);
+        }
+        return report;
+    }
+
+    private SyntheticReport() {
+        // prevents instantiation
+    }
+}
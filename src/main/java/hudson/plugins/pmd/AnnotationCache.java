@@ -0,0 +1,189 @@
+package hudson.plugins.pmd;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+import hudson.plugins.analysis.util.model.JavaProject;
+
+/**
+ * Keeps the warnings of recently used PMD results in memory. The size of the cache is limited by a memory budget,
+ * least recently used entries are evicted first. The memory of an entry is estimated by the number of its warnings.
+ *
+ * @author Ulli Hafner
+ */
+@ExportedBean
+public final class AnnotationCache {
+    /** Maximum size of the cache in MB, may be overridden using a system property. */
+    private static final int MAXIMUM_SIZE_IN_MB = Integer.getInteger(
+            AnnotationCache.class.getName() + ".maximumSize", 128);
+    private static final long MB = 1024 * 1024;
+    /** Estimated number of bytes that are required by a warning on the heap. */
+    private static final long BYTES_PER_WARNING = 512;
+
+    /** Singleton instance. */
+    private static final AnnotationCache INSTANCE = new AnnotationCache(MAXIMUM_SIZE_IN_MB * MB);
+
+    private final Map<String, JavaProject> entries = new LinkedHashMap<String, JavaProject>(16, 0.75f, true);
+    private final long maximumWeight;
+    private long weight;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Returns the singleton instance.
+     *
+     * @return the singleton instance
+     */
+    public static AnnotationCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Creates a new instance of {@link AnnotationCache}.
+     *
+     * @param maximumWeight
+     *            the maximum number of bytes of all cached entries
+     */
+    AnnotationCache(final long maximumWeight) {
+        this.maximumWeight = maximumWeight;
+    }
+
+    /**
+     * Returns the cached warnings with the specified key.
+     *
+     * @param key
+     *            the key of the result
+     * @return the warnings or {@code null} if the warnings are not cached
+     */
+    synchronized JavaProject get(final String key) {
+        JavaProject project = entries.get(key);
+        if (project == null) {
+            misses++;
+        }
+        else {
+            hits++;
+        }
+        return project;
+    }
+
+    /**
+     * Returns whether the warnings with the specified key are cached. The statistics and the order of the entries
+     * are not changed.
+     *
+     * @param key
+     *            the key of the result
+     * @return {@code true} if the warnings are cached
+     */
+    synchronized boolean contains(final String key) {
+        return entries.containsKey(key);
+    }
+
+    /**
+     * Caches the specified warnings. Least recently used entries are evicted if the budget is exceeded.
+     *
+     * @param key
+     *            the key of the result
+     * @param project
+     *            the warnings of the result
+     */
+    synchronized void put(final String key, final JavaProject project) {
+        long entryWeight = weigh(project);
+        if (entryWeight > maximumWeight) {
+            return;
+        }
+        JavaProject previous = entries.put(key, project);
+        if (previous != null) {
+            weight -= weigh(previous);
+        }
+        weight += entryWeight;
+
+        Iterator<JavaProject> iterator = entries.values().iterator();
+        while (weight > maximumWeight && iterator.hasNext()) {
+            weight -= weigh(iterator.next());
+            iterator.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * Removes the warnings with the specified key.
+     *
+     * @param key
+     *            the key of the result
+     */
+    synchronized void remove(final String key) {
+        JavaProject previous = entries.remove(key);
+        if (previous != null) {
+            weight -= weigh(previous);
+        }
+    }
+
+    private long weigh(final JavaProject project) {
+        return project.getNumberOfAnnotations() * BYTES_PER_WARNING;
+    }
+
+    /**
+     * Returns the number of requests that have been served from this cache.
+     *
+     * @return the number of cache hits
+     */
+    @Exported
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of requests that required loading the warnings.
+     *
+     * @return the number of cache misses
+     */
+    @Exported
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Returns the number of entries that have been evicted since the budget has been exceeded.
+     *
+     * @return the number of evictions
+     */
+    @Exported
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Returns the number of cached results.
+     *
+     * @return the number of cached results
+     */
+    @Exported
+    public synchronized int getSize() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the estimated number of bytes of all cached warnings.
+     *
+     * @return the estimated memory of the cache
+     */
+    @Exported
+    public synchronized long getWeight() {
+        return weight;
+    }
+
+    /**
+     * Returns the maximum number of bytes of all cached warnings.
+     *
+     * @return the memory budget of the cache
+     */
+    @Exported
+    public long getMaximumWeight() {
+        return maximumWeight;
+    }
+}
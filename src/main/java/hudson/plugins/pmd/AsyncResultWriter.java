@@ -0,0 +1,166 @@
+package hudson.plugins.pmd;
+
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Writes the warnings of PMD results in background threads, so that builds do not need to wait for the files. The
+ * number of threads and pending writes is bounded: if too many writes are pending or if the writer has been shut
+ * down, the build thread writes the warnings itself. Write operations for the same files are run one after the other
+ * in the order of their submission. Readers of the files of a build need to call {@link #await(String)} before they
+ * access the files.
+ *
+ * @author Ulli Hafner
+ */
+public final class AsyncResultWriter {
+    private static final Logger LOGGER = Logger.getLogger(AsyncResultWriter.class.getName());
+
+    /** Number of writer threads, may be overridden using a system property. */
+    private static final int THREADS = Integer.getInteger(AsyncResultWriter.class.getName() + ".threads", 2);
+    /** Maximum number of pending writes, may be overridden using a system property. */
+    private static final int QUEUE_SIZE = Integer.getInteger(AsyncResultWriter.class.getName() + ".queueSize", 32);
+    private static final long KEEP_ALIVE_SECONDS = 60;
+
+    /** Singleton instance. */
+    private static final AsyncResultWriter INSTANCE = new AsyncResultWriter(THREADS, QUEUE_SIZE);
+
+    private final Map<String, FutureTask<?>> pending = new ConcurrentHashMap<String, FutureTask<?>>();
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * Returns the singleton instance.
+     *
+     * @return the singleton instance
+     */
+    public static AsyncResultWriter getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Creates a new instance of {@link AsyncResultWriter}.
+     *
+     * @param threads
+     *            the number of writer threads
+     * @param queueSize
+     *            the maximum number of pending writes
+     */
+    AsyncResultWriter(final int threads, final int queueSize) {
+        executor = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(queueSize),
+                new LowPriorityThreadFactory("PMD result writer", Thread.NORM_PRIORITY - 1), new RunInlinePolicy());
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Schedules the specified write operation for the files with the specified key. If there is already a pending
+     * write operation for these files, then the new operation waits until the previous one has been completed.
+     *
+     * @param key
+     *            the key of the files, e.g. the build directory
+     * @param writer
+     *            the operation that writes the files
+     */
+    public void submit(final String key, final Runnable writer) {
+        FutureTask<Void> task;
+        synchronized (pending) {
+            final FutureTask<?> previous = pending.get(key);
+            task = new FutureTask<Void>(new Runnable() {
+                @Override
+                public void run() {
+                    if (previous != null) {
+                        waitFor(key, previous);
+                    }
+                    writer.run();
+                }
+            }, null) {
+                @Override
+                protected void done() {
+                    pending.remove(key, this);
+                }
+            };
+            pending.put(key, task);
+        }
+        executor.execute(task);
+    }
+
+    /**
+     * Waits until all pending write operations for the files with the specified key have been completed. Returns
+     * immediately if there is no such operation. If an operation has not been started yet, it is executed in the
+     * calling thread, so that writers that read the files of other builds never wait for queued operations.
+     *
+     * @param key
+     *            the key of the files, e.g. the build directory
+     */
+    public void await(final String key) {
+        FutureTask<?> task = pending.get(key);
+        if (task != null) {
+            waitFor(key, task);
+        }
+    }
+
+    /**
+     * Waits until the specified write operation has been completed. Since each operation waits for its predecessor,
+     * waiting for the last operation of a key covers all operations of that key.
+     *
+     * @param key
+     *            the key of the files
+     * @param task
+     *            the operation to wait for
+     */
+    private void waitFor(final String key, final FutureTask<?> task) {
+        task.run();
+        try {
+            task.get();
+        }
+        catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+        catch (ExecutionException exception) {
+            LOGGER.log(Level.WARNING, "Writing the PMD warnings of " + key + " failed", exception.getCause());
+        }
+    }
+
+    /**
+     * Returns the number of pending write operations.
+     *
+     * @return the number of pending writes
+     */
+    public int getPending() {
+        return pending.size();
+    }
+
+    /**
+     * Completes all pending write operations and stops the writer threads.
+     *
+     * @throws InterruptedException
+     *             if the current thread has been interrupted while waiting
+     */
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.HOURS);
+    }
+
+    /**
+     * Runs rejected write operations in the calling thread. In contrast to
+     * {@link java.util.concurrent.ThreadPoolExecutor.CallerRunsPolicy} the operations are also run after the
+     * executor has been shut down, otherwise the warnings of builds that complete during the shutdown would be lost
+     * when Jenkins stops.
+     */
+    private static class RunInlinePolicy implements RejectedExecutionHandler {
+        @Override
+        public void rejectedExecution(final Runnable runnable, final ThreadPoolExecutor rejectingExecutor) {
+            if (rejectingExecutor.isShutdown()) {
+                LOGGER.log(Level.FINE, "PMD result writer has been shut down, writing in the calling thread");
+            }
+            runnable.run();
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package hudson.plugins.pmd;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import hudson.plugins.analysis.util.model.FileAnnotation;
+import hudson.plugins.pmd.parser.BugTable;
+
+/**
+ * The PMD warnings of a build, stored as difference to the warnings of a base build: the added and the removed
+ * warnings. Two warnings are considered the same if all of their stored properties are equal, so the warnings are
+ * restored exactly. The keys of the warnings that are part of both builds are stored as well, so the restored
+ * warnings have the same keys as the original warnings. Deltas form chains, the length of a chain is limited by
+ * writing a full snapshot every {@link #getSnapshotInterval()} builds.
+ * <p>
+ * Layout (gzip compressed): magic number, version, base build number, chain length, added warnings, removed warnings,
+ * keys of the retained warnings.
+ * </p>
+ *
+ * @author Ulli Hafner
+ */
+final class DeltaStorage {
+    private static final int MAGIC = 0x504d4444; // PMDD
+    private static final int VERSION = 2;
+    /**
+     * Number of builds after which a full snapshot is written, may be set using a system property. Values less than
+     * 2 disable the delta storage.
+     */
+    private static final int SNAPSHOT_INTERVAL = Integer.getInteger(
+            DeltaStorage.class.getName() + ".snapshotInterval", 0);
+
+    private final int baseBuild;
+    private final int chainLength;
+    private final List<FileAnnotation> added;
+    private final List<FileAnnotation> removed;
+    /** The keys of the retained warnings of the base build, in the order of the base build. */
+    private final long[] retainedKeys;
+
+    /**
+     * Returns whether the warnings of builds should be stored as deltas.
+     *
+     * @return {@code true} if the delta storage is enabled
+     */
+    static boolean isEnabled() {
+        return getSnapshotInterval() > 1;
+    }
+
+    /**
+     * Returns the number of builds after which a full snapshot is written.
+     *
+     * @return the snapshot interval
+     */
+    static int getSnapshotInterval() {
+        return SNAPSHOT_INTERVAL;
+    }
+
+    /**
+     * Computes the delta between the warnings of the base build and the current build.
+     *
+     * @param baseBuild
+     *            the number of the base build
+     * @param chainLength
+     *            the number of deltas including this delta that need to be applied to the last full snapshot
+     * @param base
+     *            the warnings of the base build
+     * @param current
+     *            the warnings of the current build
+     * @return the delta
+     */
+    static DeltaStorage compute(final int baseBuild, final int chainLength,
+            final Collection<FileAnnotation> base, final Collection<FileAnnotation> current) {
+        Map<String, FileAnnotation> baseKeys = index(base);
+        Map<String, FileAnnotation> removed = new LinkedHashMap<String, FileAnnotation>(baseKeys);
+        Map<String, Long> retained = new HashMap<String, Long>();
+        List<FileAnnotation> added = new ArrayList<FileAnnotation>();
+        for (FileAnnotation annotation : current) {
+            String key = BugTable.createKey(annotation);
+            if (removed.remove(key) == null) {
+                added.add(annotation);
+            }
+            else {
+                retained.put(key, annotation.getKey());
+            }
+        }
+        long[] retainedKeys = new long[retained.size()];
+        int index = 0;
+        for (String key : baseKeys.keySet()) {
+            Long retainedKey = retained.get(key);
+            if (retainedKey != null) {
+                retainedKeys[index++] = retainedKey;
+            }
+        }
+        return new DeltaStorage(baseBuild, chainLength, added, new ArrayList<FileAnnotation>(removed.values()),
+                retainedKeys);
+    }
+
+    private static Map<String, FileAnnotation> index(final Collection<FileAnnotation> annotations) {
+        Map<String, FileAnnotation> keys = new LinkedHashMap<String, FileAnnotation>();
+        for (FileAnnotation annotation : annotations) {
+            keys.put(BugTable.createKey(annotation), annotation);
+        }
+        return keys;
+    }
+
+    private DeltaStorage(final int baseBuild, final int chainLength, final List<FileAnnotation> added,
+            final List<FileAnnotation> removed, final long[] retainedKeys) {
+        this.baseBuild = baseBuild;
+        this.chainLength = chainLength;
+        this.added = added;
+        this.removed = removed;
+        this.retainedKeys = retainedKeys;
+    }
+
+    /**
+     * Returns the number of the base build.
+     *
+     * @return the number of the base build
+     */
+    int getBaseBuild() {
+        return baseBuild;
+    }
+
+    /**
+     * Returns the number of deltas that need to be applied to the last full snapshot.
+     *
+     * @return the length of the chain
+     */
+    int getChainLength() {
+        return chainLength;
+    }
+
+    /**
+     * Restores the warnings of the build by applying this delta to the warnings of the base build.
+     *
+     * @param base
+     *            the warnings of the base build
+     * @return the warnings of the build
+     * @throws IOException
+     *             if the delta does not match the warnings of the base build
+     */
+    List<FileAnnotation> apply(final Collection<FileAnnotation> base) throws IOException {
+        Map<String, FileAnnotation> keys = index(base);
+        for (FileAnnotation annotation : removed) {
+            if (keys.remove(BugTable.createKey(annotation)) == null) {
+                throw new IOException("Removed warning is not part of base build " + baseBuild);
+            }
+        }
+        if (keys.size() != retainedKeys.length) {
+            throw new IOException(String.format("Base build %d contains %d retained warnings, expected %d",
+                    baseBuild, keys.size(), retainedKeys.length));
+        }
+        List<FileAnnotation> annotations = new ArrayList<FileAnnotation>(keys.size() + added.size());
+        int index = 0;
+        for (FileAnnotation annotation : keys.values()) {
+            annotations.add(BugTable.copy(annotation, retainedKeys[index++]));
+        }
+        annotations.addAll(added);
+        return annotations;
+    }
+
+    /**
+     * Writes this delta to the specified file. The delta is written to a temporary file first that replaces the
+     * specified file afterwards.
+     *
+     * @param file
+     *            the file to write
+     * @throws IOException
+     *             if the file could not be written
+     */
+    void write(final File file) throws IOException {
+        File temporary = new File(file.getPath() + ".tmp");
+        DataOutputStream output = new DataOutputStream(
+                new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(temporary))));
+        try {
+            output.writeInt(MAGIC);
+            output.writeByte(VERSION);
+            output.writeInt(baseBuild);
+            output.writeInt(chainLength);
+            BugTable.write(added, output);
+            BugTable.write(removed, output);
+            output.writeInt(retainedKeys.length);
+            for (long key : retainedKeys) {
+                output.writeLong(key);
+            }
+        }
+        finally {
+            output.close();
+        }
+        if (!temporary.renameTo(file) && !(file.delete() && temporary.renameTo(file))) {
+            temporary.delete();
+            throw new IOException("Can't replace " + file);
+        }
+    }
+
+    /**
+     * Reads a delta from the specified file.
+     *
+     * @param file
+     *            the file to read
+     * @return the delta
+     * @throws IOException
+     *             if the file could not be read
+     */
+    static DeltaStorage read(final File file) throws IOException {
+        DataInputStream input = new DataInputStream(
+                new BufferedInputStream(new GZIPInputStream(new FileInputStream(file))));
+        try {
+            if (input.readInt() != MAGIC || input.readByte() != VERSION) {
+                throw new IOException("Unsupported format of PMD warnings delta: " + file);
+            }
+            int baseBuild = input.readInt();
+            int chainLength = input.readInt();
+            List<FileAnnotation> added = BugTable.read(input);
+            List<FileAnnotation> removed = BugTable.read(input);
+            long[] retainedKeys = new long[input.readInt()];
+            for (int i = 0; i < retainedKeys.length; i++) {
+                retainedKeys[i] = input.readLong();
+            }
+
+            return new DeltaStorage(baseBuild, chainLength, added, removed, retainedKeys);
+        }
+        finally {
+            input.close();
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package hudson.plugins.pmd;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates named daemon threads with the specified priority for background work that should not compete with
+ * builds and requests.
+ *
+ * @author Ulli Hafner
+ */
+class LowPriorityThreadFactory implements ThreadFactory {
+    private final AtomicInteger count = new AtomicInteger();
+    private final String name;
+    private final int priority;
+
+    /**
+     * Creates a new instance of {@link LowPriorityThreadFactory}.
+     *
+     * @param name
+     *            the name of the threads, a counter is appended
+     * @param priority
+     *            the priority of the threads
+     */
+    LowPriorityThreadFactory(final String name, final int priority) {
+        this.name = name;
+        this.priority = priority;
+    }
+
+    @Override
+    public Thread newThread(final Runnable runnable) {
+        Thread thread = new Thread(runnable, name + " " + count.incrementAndGet());
+        thread.setDaemon(true);
+        thread.setPriority(priority);
+        return thread;
+    }
+}
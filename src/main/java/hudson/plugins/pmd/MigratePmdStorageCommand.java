@@ -0,0 +1,47 @@
+package hudson.plugins.pmd;
+
+import java.util.concurrent.TimeUnit;
+
+import org.kohsuke.args4j.Option;
+
+import jenkins.model.Jenkins;
+
+import hudson.Extension;
+import hudson.cli.CLICommand;
+
+/**
+ * Rewrites the PMD warnings of all existing builds in the current storage format and reports the progress until the
+ * migration is finished.
+ *
+ * @author Ulli Hafner
+ */
+@Extension
+public class MigratePmdStorageCommand extends CLICommand {
+    private static final long PROGRESS_INTERVAL = TimeUnit.SECONDS.toMillis(10);
+
+    /** Number of threads that convert builds in parallel. */
+    @Option(name = "-threads", usage = "Number of builds that are converted in parallel")
+    private int threads = 2;
+
+    @Override
+    public String getShortDescription() {
+        return Messages.PMD_MigrateStorage_Description();
+    }
+
+    @Override
+    protected int run() throws InterruptedException {
+        Jenkins.getActiveInstance().checkPermission(Jenkins.ADMINISTER);
+
+        StorageMigration migration = StorageMigration.getInstance();
+        if (!migration.start(threads)) {
+            stderr.println("A migration of the PMD warnings is already running: " + migration);
+            return 1;
+        }
+        while (migration.isRunning()) {
+            Thread.sleep(PROGRESS_INTERVAL);
+            stdout.println(migration);
+        }
+        stdout.println("Migration of the PMD warnings finished: " + migration);
+        return migration.getFailed() == 0 ? 0 : 1;
+    }
+}
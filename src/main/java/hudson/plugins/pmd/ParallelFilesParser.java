@@ -0,0 +1,266 @@
+package hudson.plugins.pmd;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.lang.exception.ExceptionUtils;
+
+import jenkins.MasterToSlaveFileCallable;
+
+import hudson.FilePath;
+import hudson.plugins.analysis.core.ParserResult;
+import hudson.plugins.analysis.util.FileFinder;
+import hudson.plugins.analysis.util.ModuleDetector;
+import hudson.plugins.analysis.util.model.FileAnnotation;
+import hudson.plugins.pmd.parser.PmdParser;
+import hudson.plugins.pmd.parser.ReferenceFingerprints;
+import hudson.remoting.VirtualChannel;
+
+/**
+ * Parses all files that match a given pattern on a fork-join pool. The workspace is scanned once, then the matching
+ * files are parsed in parallel. The warnings of the individual files are merged in the lexicographic order of the
+ * file names, so the composed {@link ParserResult} does not depend on the scheduling of the tasks. If the
+ * parallelism is 1, then the files are parsed one after the other in the calling thread. If the fingerprints of the
+ * reference build are provided, then the new and fixed warnings are computed right after parsing on the agent.
+ *
+ * @author Ulli Hafner
+ */
+public class ParallelFilesParser extends MasterToSlaveFileCallable<PmdParserResult> {
+    private static final long serialVersionUID = -4374436127624427925L;
+
+    private final String pluginId;
+    private final String filePattern;
+    private final PmdParser parser;
+    private final boolean shouldDetectModules;
+    private final boolean isMavenBuild;
+    private final int parallelism;
+    private final ReferenceFingerprints reference;
+
+    /**
+     * Creates a new instance of {@link ParallelFilesParser}.
+     *
+     * @param pluginId
+     *            the ID of the plug-in that uses this parser
+     * @param filePattern
+     *            ant file-set pattern to scan for files to parse
+     * @param parser
+     *            the parser to apply on the found files
+     * @param shouldDetectModules
+     *            determines whether modules should be detected from pom.xml or build.xml files
+     * @param isMavenBuild
+     *            determines whether this is a maven build
+     * @param parallelism
+     *            the number of files that will be parsed in parallel
+     */
+    public ParallelFilesParser(final String pluginId, final String filePattern, final PmdParser parser,
+            final boolean shouldDetectModules, final boolean isMavenBuild, final int parallelism) {
+        this(pluginId, filePattern, parser, shouldDetectModules, isMavenBuild, parallelism, null);
+    }
+
+    /**
+     * Creates a new instance of {@link ParallelFilesParser}.
+     *
+     * @param pluginId
+     *            the ID of the plug-in that uses this parser
+     * @param filePattern
+     *            ant file-set pattern to scan for files to parse
+     * @param parser
+     *            the parser to apply on the found files
+     * @param shouldDetectModules
+     *            determines whether modules should be detected from pom.xml or build.xml files
+     * @param isMavenBuild
+     *            determines whether this is a maven build
+     * @param parallelism
+     *            the number of files that will be parsed in parallel
+     * @param reference
+     *            the fingerprints of the reference build, or {@code null} if the new and fixed warnings should be
+     *            computed on the controller
+     */
+    public ParallelFilesParser(final String pluginId, final String filePattern, final PmdParser parser,
+            final boolean shouldDetectModules, final boolean isMavenBuild, final int parallelism,
+            final ReferenceFingerprints reference) {
+        super();
+
+        this.pluginId = pluginId;
+        this.filePattern = filePattern;
+        this.parser = parser;
+        this.shouldDetectModules = shouldDetectModules;
+        this.isMavenBuild = isMavenBuild;
+        this.parallelism = Math.max(1, parallelism);
+        this.reference = reference;
+    }
+
+    @Override
+    public PmdParserResult invoke(final File workspace, final VirtualChannel channel)
+            throws IOException, InterruptedException {
+        long start = System.currentTimeMillis();
+        String[] fileNames = new FileFinder(filePattern).find(workspace);
+        Arrays.sort(fileNames);
+
+        ModuleDetector detector = shouldDetectModules ? new ModuleDetector(workspace) : null;
+        List<ReportFile> files = new ArrayList<ReportFile>();
+        long bytesRead = 0;
+        for (String fileName : fileNames) {
+            File file = new File(workspace, fileName);
+            String moduleName = detector == null ? StringUtils.EMPTY : detector.guessModuleName(file.getAbsolutePath());
+            files.add(new ReportFile(file, moduleName));
+            bytesRead += file.length();
+        }
+        long scanDuration = System.currentTimeMillis() - start;
+
+        start = System.currentTimeMillis();
+        PmdParserResult result = new PmdParserResult(new FilePath(workspace));
+        if (files.isEmpty()) {
+            reportMissingFiles(workspace, result);
+        }
+        else {
+            result.addSummaryMessage(String.format("Parsing %d files in %s",
+                    files.size(), workspace.getAbsolutePath()));
+            if (parallelism == 1) {
+                for (ReportFile file : files) {
+                    file.addTo(result, file.call());
+                }
+            }
+            else {
+                parseInParallel(files, result);
+            }
+        }
+        result.setStatistics(new ParserStatistics(scanDuration, System.currentTimeMillis() - start,
+                fileNames.length, bytesRead));
+        if (parser.isUsingReportCache()) {
+            result.addSummaryMessage(String.format("PMD report cache: %d hits, %d misses",
+                    parser.getCacheHits(), parser.getCacheMisses()));
+        }
+        if (reference != null) {
+            result.setDifference(reference.compare(result.getAnnotations()));
+        }
+        return result;
+    }
+
+    /**
+     * Reports that no file matches the pattern. For maven builds this is not an error, since the PMD goal might not
+     * be part of every module.
+     *
+     * @param workspace
+     *            the workspace
+     * @param result
+     *            the result to add the message to
+     */
+    private void reportMissingFiles(final File workspace, final PmdParserResult result) {
+        if (isMavenBuild) {
+            result.addSummaryMessage(String.format("No files found in %s for pattern: %s",
+                    workspace.getAbsolutePath(), filePattern));
+        }
+        else {
+            result.addErrorMessage(Messages.PMD_Parser_NoFiles(filePattern));
+        }
+    }
+
+    private void parseInParallel(final List<ReportFile> files, final PmdParserResult result)
+            throws InterruptedException {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            List<Future<Collection<FileAnnotation>>> results = new ArrayList<Future<Collection<FileAnnotation>>>();
+            for (ReportFile file : files) {
+                results.add(pool.submit(file));
+            }
+            for (int i = 0; i < files.size(); i++) {
+                ReportFile file = files.get(i);
+                try {
+                    file.addTo(result, results.get(i).get());
+                }
+                catch (ExecutionException exception) {
+                    result.addErrorMessage(file.getModuleName(), String.format(
+                            "Parsing of file '%s' failed due to an exception: %s",
+                            file.getFile(), exception.getCause()));
+                }
+            }
+        }
+        finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * A report file that matches the pattern. Parsing a file has no side effects on the result, so that the files
+     * may be parsed in any order: the warnings are added to the result in the order of the files afterwards.
+     */
+    private class ReportFile implements Callable<Collection<FileAnnotation>> {
+        private final File file;
+        private final String moduleName;
+        private String errorMessage;
+
+        ReportFile(final File file, final String moduleName) {
+            this.file = file;
+            this.moduleName = moduleName;
+        }
+
+        File getFile() {
+            return file;
+        }
+
+        String getModuleName() {
+            return moduleName;
+        }
+
+        /**
+         * Parses this file.
+         *
+         * @return the warnings of this file, or {@code null} if the file could not be parsed
+         */
+        @Override
+        public Collection<FileAnnotation> call() {
+            if (!file.canRead()) {
+                errorMessage = String.format("Skipping file '%s' of module '%s' because Jenkins has no permission "
+                        + "to read the file.", file, moduleName);
+                return null;
+            }
+            if (file.length() <= 0) {
+                errorMessage = String.format("Skipping file '%s' of module '%s' because it's empty.", file, moduleName);
+                return null;
+            }
+            try {
+                return parser.parse(file, moduleName);
+            }
+            catch (InvocationTargetException exception) {
+                errorMessage = String.format("Parsing of file '%s' failed due to an exception:%n%n%s", file,
+                        ExceptionUtils.getStackTrace(getRootCause(exception)));
+                return null;
+            }
+        }
+
+        private Throwable getRootCause(final InvocationTargetException exception) {
+            return exception.getCause() == null ? exception : exception.getCause();
+        }
+
+        /**
+         * Adds the warnings or the error message of this file to the specified result.
+         *
+         * @param result
+         *            the result
+         * @param annotations
+         *            the warnings of this file, or {@code null} if the file could not be parsed
+         */
+        void addTo(final PmdParserResult result, final Collection<FileAnnotation> annotations) {
+            if (annotations == null) {
+                result.addErrorMessage(moduleName, errorMessage);
+            }
+            else {
+                result.addAnnotations(annotations);
+                result.addModule(moduleName);
+                result.addSummaryMessage(String.format("Successfully parsed file %s of module %s with %d warnings.",
+                        file, moduleName, annotations.size()));
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package hudson.plugins.pmd;
+
+import java.io.Serializable;
+
+/**
+ * Statistics of parsing the PMD report files in a workspace. These statistics are recorded on the agent.
+ *
+ * @author Ulli Hafner
+ */
+public class ParserStatistics implements Serializable {
+    private static final long serialVersionUID = -1582771138009880467L;
+
+    private final long scanDuration;
+    private final long parseDuration;
+    private final int numberOfFiles;
+    private final long bytesRead;
+
+    /**
+     * Creates a new instance of {@link ParserStatistics}.
+     *
+     * @param scanDuration
+     *            the time in milliseconds to find the report files and detect the modules
+     * @param parseDuration
+     *            the time in milliseconds to parse the report files
+     * @param numberOfFiles
+     *            the number of parsed report files
+     * @param bytesRead
+     *            the total size of the parsed report files
+     */
+    public ParserStatistics(final long scanDuration, final long parseDuration, final int numberOfFiles, final long bytesRead) {
+        this.scanDuration = scanDuration;
+        this.parseDuration = parseDuration;
+        this.numberOfFiles = numberOfFiles;
+        this.bytesRead = bytesRead;
+    }
+
+    /**
+     * Returns the time in milliseconds to find the report files and detect the modules.
+     *
+     * @return the scan duration
+     */
+    public long getScanDuration() {
+        return scanDuration;
+    }
+
+    /**
+     * Returns the time in milliseconds to parse the report files.
+     *
+     * @return the parse duration
+     */
+    public long getParseDuration() {
+        return parseDuration;
+    }
+
+    /**
+     * Returns the number of parsed report files.
+     *
+     * @return the number of files
+     */
+    public int getNumberOfFiles() {
+        return numberOfFiles;
+    }
+
+    /**
+     * Returns the total size of the parsed report files.
+     *
+     * @return the number of bytes read
+     */
+    public long getBytesRead() {
+        return bytesRead;
+    }
+}
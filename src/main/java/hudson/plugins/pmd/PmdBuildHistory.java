@@ -0,0 +1,159 @@
+package hudson.plugins.pmd;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import hudson.model.Run;
+import hudson.plugins.analysis.core.BuildHistory;
+import hudson.plugins.analysis.core.BuildResult;
+import hudson.plugins.analysis.core.ResultAction;
+import hudson.plugins.analysis.util.model.AnnotationContainer;
+import hudson.plugins.analysis.util.model.FileAnnotation;
+import hudson.plugins.analysis.util.model.JavaProject;
+import hudson.plugins.pmd.parser.FingerprintDifferencer;
+import hudson.plugins.pmd.parser.ReferenceDifference;
+import hudson.plugins.pmd.parser.ReferenceFingerprints;
+
+/**
+ * History of PMD results that computes new and fixed warnings using the {@link FingerprintDifferencer}. The
+ * reference build is resolved using the {@link ReferenceBuildIndex} once when the history is created, so the
+ * fingerprints sent to the agent and the warnings compared on the controller always belong to the same build. If the
+ * new and fixed warnings have already been computed on the agent, then this {@link ReferenceDifference} is used
+ * instead.
+ *
+ * @author Ulli Hafner
+ */
+public class PmdBuildHistory extends BuildHistory {
+    private final Run<?, ?> baseline;
+    private final Class<? extends ResultAction<? extends BuildResult>> type;
+    private final boolean useIndex;
+    private final boolean useStableBuildAsReference;
+    /** The reference build, {@code null} if there is none. */
+    private final Run<?, ?> referenceBuild;
+    /** The new and fixed warnings computed on the agent, {@code null} if they need to be computed. */
+    private ReferenceDifference difference;
+
+    /**
+     * Creates a new instance of {@link PmdBuildHistory}.
+     *
+     * @param baseline
+     *            the build to start the history from
+     * @param type
+     *            type of the action that contains the build results
+     * @param usePreviousBuildAsReference
+     *            determines whether to use the previous build as the reference build
+     * @param useStableBuildAsReference
+     *            determines whether only stable builds should be used as reference builds or not
+     */
+    public PmdBuildHistory(final Run<?, ?> baseline, final Class<? extends ResultAction<? extends BuildResult>> type,
+            final boolean usePreviousBuildAsReference, final boolean useStableBuildAsReference) {
+        super(baseline, type, usePreviousBuildAsReference, useStableBuildAsReference);
+
+        this.baseline = baseline;
+        this.type = type;
+        useIndex = !usePreviousBuildAsReference && type == PmdResultAction.class;
+        this.useStableBuildAsReference = useStableBuildAsReference;
+        referenceBuild = resolveReferenceBuild();
+    }
+
+    /**
+     * Sets the new and fixed warnings that have been computed on the agent.
+     *
+     * @param difference
+     *            the difference to the reference build
+     */
+    void setDifference(final ReferenceDifference difference) {
+        this.difference = difference;
+    }
+
+    /**
+     * Returns the fingerprints of the warnings of the reference build.
+     *
+     * @return the fingerprints, empty if there is no reference build
+     */
+    ReferenceFingerprints getReferenceFingerprints() {
+        PmdResult reference = PmdResult.getPmdResult(referenceBuild);
+        if (reference == null) {
+            return ReferenceFingerprints.create(Collections.<FileAnnotation>emptyList());
+        }
+        return reference.getFingerprints();
+    }
+
+    /**
+     * Resolves the reference build using the {@link ReferenceBuildIndex}. Falls back to the search of
+     * {@link BuildHistory} if the index is not applicable or does not know the reference build.
+     *
+     * @return the reference build or {@code null} if there is none
+     */
+    private Run<?, ?> resolveReferenceBuild() {
+        if (useIndex) {
+            int number = ReferenceBuildIndex.getInstance().getReferenceBuildNumber(baseline, useStableBuildAsReference);
+            if (number == ReferenceBuildIndex.NONE) {
+                return null;
+            }
+            if (number != ReferenceBuildIndex.UNKNOWN) {
+                Run<?, ?> reference = baseline.getParent().getBuildByNumber(number);
+                if (PmdResult.getPmdResult(reference) != null) {
+                    return reference;
+                }
+            }
+        }
+        return super.getReferenceBuild();
+    }
+
+    @Override
+    public Run<?, ?> getReferenceBuild() {
+        return referenceBuild;
+    }
+
+    @Override
+    public boolean hasReferenceBuild() {
+        return referenceBuild != null;
+    }
+
+    @Override
+    public AnnotationContainer getReferenceAnnotations() {
+        if (referenceBuild != null) {
+            ResultAction<? extends BuildResult> action = referenceBuild.getAction(type);
+            if (action != null) {
+                return action.getResult().getContainer();
+            }
+        }
+        return new JavaProject();
+    }
+
+    @Override
+    public Collection<FileAnnotation> getNewWarnings(final Set<FileAnnotation> annotations) {
+        if (difference != null) {
+            Collection<FileAnnotation> reference = Collections.emptyList();
+            if (difference.isReferenceRequiredForNewWarnings()) {
+                reference = getReferenceAnnotations().getAnnotations();
+            }
+            return difference.getNewAnnotations(annotations, reference);
+        }
+        return FingerprintDifferencer.getNewAnnotations(annotations, getReferenceAnnotations().getAnnotations());
+    }
+
+    /**
+     * Returns the fixed warnings. The agent only knows the fingerprints of the reference build, so it can tell
+     * whether and which warnings have been fixed, but it can't create these warnings: they are selected from the
+     * warnings of the reference build on the controller. The reference build is loaded only if there are fixed
+     * warnings at all, its warnings are then usually served by the {@link AnnotationCache}.
+     *
+     * @param annotations
+     *            the warnings of the current build
+     * @return the fixed warnings
+     */
+    @Override
+    public Collection<FileAnnotation> getFixedWarnings(final Set<FileAnnotation> annotations) {
+        if (difference != null) {
+            if (!difference.hasFixedWarnings()) {
+                return new LinkedHashSet<FileAnnotation>();
+            }
+            return difference.getFixedAnnotations(annotations, getReferenceAnnotations().getAnnotations());
+        }
+        return FingerprintDifferencer.getFixedAnnotations(annotations, getReferenceAnnotations().getAnnotations());
+    }
+}
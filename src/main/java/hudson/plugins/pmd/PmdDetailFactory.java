@@ -0,0 +1,22 @@
+package hudson.plugins.pmd;
+
+import java.util.Collection;
+
+import hudson.model.Run;
+import hudson.plugins.analysis.util.model.FileAnnotation;
+import hudson.plugins.analysis.views.DetailFactory;
+import hudson.plugins.analysis.views.TabDetail;
+
+/**
+ * Creates the detail views of PMD results. The tabs of the warnings link to the descriptions of the PMD rules
+ * rather than including them.
+ *
+ * @author Ulli Hafner
+ */
+public class PmdDetailFactory extends DetailFactory {
+    @Override
+    protected TabDetail createTabDetail(final Run<?, ?> owner, final Collection<FileAnnotation> annotations,
+            final String url, final String defaultEncoding) {
+        return new PmdTabDetail(owner, this, annotations, url, defaultEncoding);
+    }
+}
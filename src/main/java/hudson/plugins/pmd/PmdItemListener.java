@@ -0,0 +1,24 @@
+package hudson.plugins.pmd;
+
+import hudson.Extension;
+import hudson.model.Item;
+import hudson.model.listeners.ItemListener;
+
+/**
+ * Drops the entries of the {@link ReferenceBuildIndex} of jobs that are renamed, moved or deleted.
+ *
+ * @author Ulli Hafner
+ */
+@Extension
+public class PmdItemListener extends ItemListener {
+    @Override
+    public void onLocationChanged(final Item item, final String oldFullName, final String newFullName) {
+        ReferenceBuildIndex.getInstance().invalidate(oldFullName);
+        ReferenceBuildIndex.getInstance().invalidate(newFullName);
+    }
+
+    @Override
+    public void onDeleted(final Item item) {
+        ReferenceBuildIndex.getInstance().invalidate(item.getFullName());
+    }
+}
@@ -3,6 +3,9 @@ package hudson.plugins.pmd;
 import java.util.List;
 import java.util.Map;
 
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
 import hudson.maven.MavenAggregatedReport;
 import hudson.maven.MavenBuild;
 import hudson.maven.MavenModule;
@@ -21,6 +24,7 @@ import hudson.plugins.analysis.core.ParserResult;
  *
  * @author Ulli Hafner
  */
+@ExportedBean
 public class PmdMavenResultAction extends MavenResultAction<PmdResult> {
     /**
      * Creates a new instance of {@link PmdMavenResultAction}.
@@ -46,6 +50,21 @@ public class PmdMavenResultAction extends MavenResultAction<PmdResult> {
                         usePreviousBuildAsStable(), useOnlyStableBuildsAsReference()));
     }
 
+    /**
+     * Returns the durations of the stages of publishing the results of the module build. The transfer of the
+     * results from the Maven process to the controller is not measured, and no blame information is collected.
+     *
+     * @return the timings, or {@code null} if no timings have been recorded, e.g. for aggregated results
+     */
+    @Exported
+    public StageTimings getTimings() {
+        PmdResult result = getResult();
+        if (result instanceof PmdReporterResult) {
+            return ((PmdReporterResult)result).getTimings();
+        }
+        return null;
+    }
+
     @Override
     public Action getProjectAction(final MavenModuleSet moduleSet) {
         return new PmdProjectAction(moduleSet, PmdMavenResultAction.class);
@@ -0,0 +1,207 @@
+package hudson.plugins.pmd;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.lang.StringUtils;
+
+import hudson.FilePath;
+import hudson.plugins.analysis.core.ParserResult;
+import hudson.plugins.pmd.parser.BugTable;
+import hudson.plugins.pmd.parser.ReferenceDifference;
+
+/**
+ * The result of parsing the PMD report files of a workspace. In addition to the results of the individual files,
+ * this result provides log messages that summarize the parsing of all files.
+ * <p>
+ * When this result is sent from the agent to the controller, the annotations are not serialized as individual
+ * objects: they are encoded using the compact {@link BugTable} format (see {@link #writeReplace()}).
+ * </p>
+ *
+ * @author Ulli Hafner
+ */
+public class PmdParserResult extends ParserResult {
+    private static final long serialVersionUID = 5307129524871530358L;
+
+    private final StringBuilder summary = new StringBuilder();
+    private ParserStatistics statistics = new ParserStatistics(0, 0, 0, 0);
+    /** The new and fixed warnings computed on the agent, {@code null} if computed on the controller. */
+    private ReferenceDifference difference;
+
+    /**
+     * Creates a new instance of {@link PmdParserResult}.
+     */
+    public PmdParserResult() {
+        super();
+    }
+
+    /**
+     * Creates a new instance of {@link PmdParserResult}.
+     *
+     * @param workspace
+     *            the workspace with the files affected by the parsed annotations
+     */
+    public PmdParserResult(final FilePath workspace) {
+        super(workspace);
+    }
+
+    /**
+     * Appends the specified message to the summary of the log messages.
+     *
+     * @param message
+     *            the message
+     */
+    public void addSummaryMessage(final String message) {
+        if (summary.length() > 0) {
+            summary.append('\n');
+        }
+        summary.append(message);
+    }
+
+    /**
+     * Returns the statistics of the parser.
+     *
+     * @return the statistics
+     */
+    public ParserStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Sets the statistics of the parser.
+     *
+     * @param statistics
+     *            the statistics
+     */
+    public void setStatistics(final ParserStatistics statistics) {
+        this.statistics = statistics;
+    }
+
+    /**
+     * Returns the new and fixed warnings that have been computed on the agent.
+     *
+     * @return the difference to the reference build or {@code null} if the new and fixed warnings need to be
+     *         computed on the controller
+     */
+    public ReferenceDifference getDifference() {
+        return difference;
+    }
+
+    /**
+     * Sets the new and fixed warnings that have been computed on the agent.
+     *
+     * @param difference
+     *            the difference to the reference build
+     */
+    public void setDifference(final ReferenceDifference difference) {
+        this.difference = difference;
+    }
+
+    @Override
+    public String getLogMessages() {
+        String messages = super.getLogMessages();
+        if (summary.length() == 0) {
+            return messages;
+        }
+        if (StringUtils.isEmpty(messages)) {
+            return summary.toString();
+        }
+        return messages + '\n' + summary;
+    }
+
+    /**
+     * Replaces this result with its compact form during serialization.
+     *
+     * @return the compact form of this result
+     * @throws ObjectStreamException
+     *             if the annotations could not be encoded
+     */
+    private Object writeReplace() throws ObjectStreamException {
+        return new CompactForm(this);
+    }
+
+    /**
+     * The serialized form of a {@link PmdParserResult}. The annotations are stored as a {@link BugTable}.
+     */
+    private static class CompactForm implements Serializable {
+        private static final long serialVersionUID = -2127000719519453569L;
+
+        private final byte[] annotations;
+        private final List<String> modules;
+        private final List<String> errorMessages;
+        private final String logMessages;
+        private final ParserStatistics statistics;
+        private final ReferenceDifference difference;
+
+        CompactForm(final PmdParserResult result) throws ObjectStreamException {
+            annotations = encode(result);
+            modules = new ArrayList<String>(result.getModules());
+            errorMessages = new ArrayList<String>(result.getErrorMessages());
+            logMessages = result.getLogMessages();
+            statistics = result.getStatistics();
+            difference = result.getDifference();
+        }
+
+        private byte[] encode(final PmdParserResult result) throws ObjectStreamException {
+            try {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                DataOutputStream output = new DataOutputStream(bytes);
+                BugTable.write(result.getAnnotations(), output);
+                output.close();
+                return bytes.toByteArray();
+            }
+            catch (IOException exception) {
+                throw new CompactFormException(exception);
+            }
+        }
+
+        /**
+         * Creates the {@link PmdParserResult} from its compact form.
+         *
+         * @return the result
+         * @throws ObjectStreamException
+         *             if the annotations could not be decoded
+         */
+        private Object readResolve() throws ObjectStreamException {
+            PmdParserResult result = new PmdParserResult();
+            try {
+                result.addAnnotations(BugTable.read(new DataInputStream(new ByteArrayInputStream(annotations))));
+            }
+            catch (IOException exception) {
+                throw new CompactFormException(exception);
+            }
+            for (String module : modules) {
+                result.addModule(module);
+            }
+            for (String message : errorMessages) {
+                result.addErrorMessage(message);
+            }
+            if (StringUtils.isNotEmpty(logMessages)) {
+                result.addSummaryMessage(logMessages);
+            }
+            result.setStatistics(statistics);
+            result.setDifference(difference);
+            return result;
+        }
+    }
+
+    /**
+     * Indicates that the annotations could not be encoded or decoded.
+     */
+    private static class CompactFormException extends ObjectStreamException {
+        private static final long serialVersionUID = 4407262592393829138L;
+
+        CompactFormException(final IOException cause) {
+            super(cause.getMessage());
+
+            initCause(cause);
+        }
+    }
+}
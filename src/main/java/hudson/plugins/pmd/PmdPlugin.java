@@ -1,16 +1,51 @@
 package hudson.plugins.pmd;
 
+import java.io.File;
+
+import jenkins.model.Jenkins;
+
 import hudson.Plugin;
+import hudson.plugins.analysis.views.DetailFactory;
 import hudson.plugins.pmd.parser.PmdMessages;
 
 /**
- * Initializes the PMD messages and descriptions.
+ * Initializes the PMD messages and descriptions. The descriptions of the rules are read from an index file in
+ * JENKINS_HOME. If there is no index for the bundled PMD version and the version of this plug-in yet, the rule sets
+ * are loaded on demand and warmed up in a background thread that writes the index. Set the system property
+ * {@code hudson.plugins.pmd.PmdPlugin.noWarmUp} to skip the warm-up. When Jenkins is stopped, all pending writes of
+ * PMD results are completed. The detail views of PMD results are created by the {@link PmdDetailFactory}.
  *
  * @author Ulli Hafner
  */
 public class PmdPlugin extends Plugin {
+    private static final String INDEX_FILE = "pmd-rule-descriptions.idx";
+
     @Override
     public void start() {
-        PmdMessages.getInstance().initialize();
+        PmdDetailFactory detailFactory = new PmdDetailFactory();
+        DetailFactory.addDetailBuilder(PmdResultAction.class, detailFactory);
+        DetailFactory.addDetailBuilder(PmdMavenResultAction.class, detailFactory);
+        DetailFactory.addDetailBuilder(MavenPmdResultAction.class, detailFactory);
+
+        PmdMessages messages = PmdMessages.getInstance();
+        messages.setPluginVersion(getWrapper().getVersion());
+        File indexFile = getIndexFile();
+        if (!messages.readIndex(indexFile) && !Boolean.getBoolean(PmdPlugin.class.getName() + ".noWarmUp")) {
+            messages.warmUp(indexFile);
+        }
+    }
+
+    @Override
+    public void stop() throws InterruptedException {
+        AsyncResultWriter.getInstance().shutdown();
+    }
+
+    /**
+     * Returns the file that stores the descriptions of the PMD rules.
+     *
+     * @return the index file
+     */
+    static File getIndexFile() {
+        return new File(Jenkins.getActiveInstance().getRootDir(), INDEX_FILE);
     }
 }
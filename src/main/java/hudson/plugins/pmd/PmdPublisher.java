@@ -17,11 +17,11 @@ import hudson.model.BuildListener;
 import hudson.model.Run;
 import hudson.model.TaskListener;
 import hudson.plugins.analysis.core.BuildResult;
-import hudson.plugins.analysis.core.FilesParser;
 import hudson.plugins.analysis.core.HealthAwarePublisher;
-import hudson.plugins.analysis.core.ParserResult;
 import hudson.plugins.analysis.util.PluginLogger;
 import hudson.plugins.pmd.parser.PmdParser;
+import hudson.plugins.pmd.parser.ReferenceFingerprints;
+import hudson.plugins.pmd.parser.ViolationFilter;
 
 /**
  * Publishes the results of the PMD analysis  (freestyle project type).
@@ -37,6 +37,16 @@ public class PmdPublisher extends HealthAwarePublisher {
     private static final String DEFAULT_PATTERN = "**/pmd.xml";
     /** Ant file-set pattern of files to work with. */
     private String pattern;
+    /** Determines whether to use the streaming parser. */
+    private boolean useStreamingParser;
+    /** The number of report files that are parsed in parallel. */
+    private int parallelism;
+    /** Determines whether to reuse the annotations of unchanged report files. */
+    private boolean useReportCache;
+    /** Determines whether to compute the new and fixed warnings on the agent. */
+    private boolean compareOnAgent;
+    /** Filters the violations of the reports before they are converted to warnings. */
+    private PmdViolationFilter filter;
 
     /**
      * Constructor used from methods like {@link StaplerRequest#bindJSON(Class, JSONObject)} (Class, JSONObject)} and
@@ -66,21 +76,152 @@ public class PmdPublisher extends HealthAwarePublisher {
         this.pattern = pattern;
     }
 
+    /**
+     * Returns whether to use the streaming parser that creates the warnings without building the complete PMD
+     * object graph first.
+     *
+     * @return {@code true} if the streaming parser should be used, {@code false} otherwise
+     */
+    public boolean isUseStreamingParser() {
+        return useStreamingParser;
+    }
+
+    /**
+     * Determines whether to use the streaming parser that creates the warnings without building the complete PMD
+     * object graph first.
+     *
+     * @param useStreamingParser {@code true} if the streaming parser should be used, {@code false} otherwise
+     */
+    @DataBoundSetter
+    public void setUseStreamingParser(final boolean useStreamingParser) {
+        this.useStreamingParser = useStreamingParser;
+    }
+
+    /**
+     * Returns the number of report files that are parsed in parallel. Values less than 2 disable parallel parsing.
+     *
+     * @return the number of report files that are parsed in parallel
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Sets the number of report files that are parsed in parallel. Values less than 2 disable parallel parsing.
+     *
+     * @param parallelism the number of report files that are parsed in parallel
+     */
+    @DataBoundSetter
+    public void setParallelism(final int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Returns whether to reuse the annotations of report files that have been parsed before on the same agent and
+     * that did not change since then.
+     *
+     * @return {@code true} if the annotations of unchanged report files should be reused, {@code false} otherwise
+     */
+    public boolean isUseReportCache() {
+        return useReportCache;
+    }
+
+    /**
+     * Determines whether to reuse the annotations of report files that have been parsed before on the same agent
+     * and that did not change since then.
+     *
+     * @param useReportCache {@code true} if the annotations of unchanged report files should be reused, {@code false} otherwise
+     */
+    @DataBoundSetter
+    public void setUseReportCache(final boolean useReportCache) {
+        this.useReportCache = useReportCache;
+    }
+
+    /**
+     * Returns whether to compute the new and fixed warnings on the agent. The fingerprints of the warnings of the
+     * reference build are sent to the agent, so the warnings of the reference build do not need to be loaded on
+     * the controller.
+     *
+     * @return {@code true} if the new and fixed warnings are computed on the agent, {@code false} otherwise
+     */
+    public boolean isCompareOnAgent() {
+        return compareOnAgent;
+    }
+
+    /**
+     * Determines whether to compute the new and fixed warnings on the agent. The fingerprints of the warnings of
+     * the reference build are sent to the agent, so the warnings of the reference build do not need to be loaded
+     * on the controller.
+     *
+     * @param compareOnAgent {@code true} if the new and fixed warnings should be computed on the agent, {@code false} otherwise
+     */
+    @DataBoundSetter
+    public void setCompareOnAgent(final boolean compareOnAgent) {
+        this.compareOnAgent = compareOnAgent;
+    }
+
+    /**
+     * Returns the filter of the violations of the PMD reports.
+     *
+     * @return the filter, or {@code null} if all violations are accepted
+     */
+    public PmdViolationFilter getFilter() {
+        return filter;
+    }
+
+    /**
+     * Sets the filter of the violations of the PMD reports.
+     *
+     * @param filter the filter
+     */
+    @DataBoundSetter
+    public void setFilter(final PmdViolationFilter filter) {
+        this.filter = filter;
+    }
+
+    /**
+     * Creates the filter for the violations of the PMD reports.
+     *
+     * @return the filter
+     */
+    private ViolationFilter createFilter() {
+        return filter == null ? new ViolationFilter() : filter.createFilter();
+    }
+
     @Override
     public BuildResult perform(final Run<?, ?> build, final FilePath workspace, final PluginLogger logger) throws
             InterruptedException, IOException {
         logger.log("Collecting PMD analysis files...");
-        FilesParser parser = new FilesParser(PLUGIN_NAME,
-                StringUtils.defaultIfEmpty(expandFilePattern(getPattern(), build.getEnvironment(TaskListener.NULL)), DEFAULT_PATTERN),
-                new PmdParser(getDefaultEncoding()), shouldDetectModules(), isMavenBuild(build));
-        ParserResult project = workspace.act(parser);
+        String filePattern = StringUtils.defaultIfEmpty(
+                expandFilePattern(getPattern(), build.getEnvironment(TaskListener.NULL)), DEFAULT_PATTERN);
+        PmdParser pmdParser = new PmdParser(getDefaultEncoding(), isUseStreamingParser(), isUseReportCache(),
+                createFilter());
+        PmdBuildHistory history = new PmdBuildHistory(build, PmdResultAction.class,
+                usePreviousBuildAsReference(), useOnlyStableBuildsAsReference());
+        ReferenceFingerprints reference = isCompareOnAgent() ? history.getReferenceFingerprints() : null;
+        ParallelFilesParser parser = new ParallelFilesParser(PLUGIN_NAME, filePattern, pmdParser,
+                shouldDetectModules(), isMavenBuild(build), getParallelism(), reference);
+        StageTimings timings = new StageTimings();
+        long start = System.currentTimeMillis();
+        PmdParserResult project = workspace.act(parser);
+        timings.recordParsing(project.getStatistics(), System.currentTimeMillis() - start,
+                project.getNumberOfAnnotations());
         logger.logLines(project.getLogMessages());
 
+        start = System.currentTimeMillis();
         blame(project.getAnnotations(), build, workspace);
-
-        PmdResult result = new PmdResult(build, getDefaultEncoding(), project,
-                usePreviousBuildAsReference(), useOnlyStableBuildsAsReference());
-        build.addAction(new PmdResultAction(build, this, result));
+        timings.recordBlame(System.currentTimeMillis() - start);
+
+        start = System.currentTimeMillis();
+        history.setDifference(project.getDifference());
+        PmdResult result = new PmdResult(build, getDefaultEncoding(), project, history);
+        timings.recordSerialization(result.getSerializationDuration());
+        timings.recordEvaluation(System.currentTimeMillis() - start - result.getSerializationDuration());
+
+        PmdResultAction action = new PmdResultAction(build, this, result);
+        action.setTimings(timings);
+        build.addAction(action);
+        logger.log("Timings: " + timings);
 
         return result;
     }
@@ -4,11 +4,14 @@ import java.io.IOException;
 import java.util.Collections;
 import java.util.List;
 
+import org.apache.commons.lang.StringUtils;
 import org.apache.maven.project.MavenProject;
 import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 
+import hudson.FilePath;
 import hudson.maven.MavenAggregatedReport;
 import hudson.maven.MavenBuild;
 import hudson.maven.MavenBuildProxy;
@@ -19,6 +22,7 @@ import hudson.plugins.analysis.core.HealthAwareReporter;
 import hudson.plugins.analysis.core.ParserResult;
 import hudson.plugins.analysis.util.PluginLogger;
 import hudson.plugins.pmd.parser.PmdParser;
+import hudson.plugins.pmd.parser.ViolationFilter;
 
 /**
  * Publishes the results of the PMD analysis  (maven 2 project type).
@@ -32,6 +36,9 @@ public class PmdReporter extends HealthAwareReporter<PmdResult> {
     /** Default PMD pattern. */
     private static final String PMD_XML_FILE = "pmd.xml";
 
+    /** Filters the violations of the reports before they are converted to warnings. */
+    private PmdViolationFilter filter;
+
     /**
      * Creates a new instance of <code>PmdReporter</code>.
      *
@@ -109,6 +116,34 @@ public class PmdReporter extends HealthAwareReporter<PmdResult> {
     }
     // CHECKSTYLE:ON
 
+    /**
+     * Returns the filter of the violations of the PMD reports.
+     *
+     * @return the filter, or {@code null} if all violations are accepted
+     */
+    public PmdViolationFilter getFilter() {
+        return filter;
+    }
+
+    /**
+     * Sets the filter of the violations of the PMD reports.
+     *
+     * @param filter the filter
+     */
+    @DataBoundSetter
+    public void setFilter(final PmdViolationFilter filter) {
+        this.filter = filter;
+    }
+
+    /**
+     * Creates the filter for the violations of the PMD reports.
+     *
+     * @return the filter
+     */
+    private ViolationFilter createFilter() {
+        return filter == null ? new ViolationFilter() : filter.createFilter();
+    }
+
     @Override
     protected boolean acceptGoal(final String goal) {
         return "pmd".equals(goal) || "site".equals(goal) || "report".equals(goal) || "check".equals(goal);
@@ -117,15 +152,38 @@ public class PmdReporter extends HealthAwareReporter<PmdResult> {
     @Override
     public ParserResult perform(final MavenBuildProxy build, final MavenProject pom, final MojoInfo mojo, final PluginLogger logger) throws InterruptedException, IOException {
         FilesParser pmdCollector = new FilesParser(PLUGIN_NAME, PMD_XML_FILE,
-                new PmdParser(getDefaultEncoding()), getModuleName(pom));
+                new PmdParser(getDefaultEncoding(), false, false, createFilter()), getModuleName(pom));
+
+        FilePath target = getTargetPath(pom);
+        long start = System.currentTimeMillis();
+        ParserResult parsed = target.act(pmdCollector);
+        long duration = System.currentTimeMillis() - start;
+
+        PmdParserResult result = new PmdParserResult(target);
+        result.addProject(parsed);
+        result.addSummaryMessage(StringUtils.defaultString(parsed.getLogMessages()));
+        FilePath report = target.child(PMD_XML_FILE);
+        boolean exists = report.exists();
+        result.setStatistics(new ParserStatistics(0, duration, exists ? 1 : 0, exists ? report.length() : 0));
 
-        return getTargetPath(pom).act(pmdCollector);
+        return result;
     }
 
     @Override
     protected PmdResult createResult(final MavenBuild build, final ParserResult project) {
-        return new PmdReporterResult(build, getDefaultEncoding(), project,
+        long start = System.currentTimeMillis();
+        PmdReporterResult result = new PmdReporterResult(build, getDefaultEncoding(), project,
                 usePreviousBuildAsReference(), useOnlyStableBuildsAsReference());
+        if (project instanceof PmdParserResult) {
+            ParserStatistics statistics = ((PmdParserResult)project).getStatistics();
+            StageTimings timings = new StageTimings();
+            timings.recordParsing(statistics, statistics.getScanDuration() + statistics.getParseDuration(),
+                    project.getNumberOfAnnotations());
+            timings.recordSerialization(result.getSerializationDuration());
+            timings.recordEvaluation(System.currentTimeMillis() - start - result.getSerializationDuration());
+            result.setTimings(timings);
+        }
+        return result;
     }
 
     @Override
@@ -13,6 +13,9 @@ import hudson.plugins.analysis.core.ResultAction;
 public class PmdReporterResult extends PmdResult {
     private static final long serialVersionUID = 498726255763220019L;
 
+    /** The durations of the stages of publishing this result, {@code null} for aggregated results. */
+    private StageTimings timings;
+
     /**
      * Creates a new instance of {@link PmdReporterResult}.
      *
@@ -35,6 +38,25 @@ public class PmdReporterResult extends PmdResult {
                 PmdMavenResultAction.class);
     }
 
+    /**
+     * Returns the durations of the stages of publishing this result.
+     *
+     * @return the timings, or {@code null} if no timings have been recorded
+     */
+    public StageTimings getTimings() {
+        return timings;
+    }
+
+    /**
+     * Sets the durations of the stages of publishing this result.
+     *
+     * @param timings
+     *            the timings
+     */
+    void setTimings(final StageTimings timings) {
+        this.timings = timings;
+    }
+
     @Override
     protected Class<? extends ResultAction<? extends BuildResult>> getResultActionType() {
         return PmdMavenResultAction.class;
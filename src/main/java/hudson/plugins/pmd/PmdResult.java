@@ -1,5 +1,23 @@
 package hudson.plugins.pmd;
 
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.lang.StringUtils;
+import org.kohsuke.stapler.QueryParameter;
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
+
 import com.thoughtworks.xstream.XStream;
 
 import hudson.model.Run;
@@ -7,7 +25,16 @@ import hudson.plugins.analysis.core.BuildHistory;
 import hudson.plugins.analysis.core.BuildResult;
 import hudson.plugins.analysis.core.ParserResult;
 import hudson.plugins.analysis.core.ResultAction;
+import hudson.plugins.analysis.util.model.AnnotationContainer;
+import hudson.plugins.analysis.util.model.FileAnnotation;
+import hudson.plugins.analysis.util.model.JavaProject;
+import hudson.plugins.analysis.util.model.Priority;
+import hudson.plugins.analysis.views.DetailFactory;
+import hudson.plugins.pmd.parser.AnnotationPages;
 import hudson.plugins.pmd.parser.Bug;
+import hudson.plugins.pmd.parser.CompactAnnotationsConverter;
+import hudson.plugins.pmd.parser.PmdMessages;
+import hudson.plugins.pmd.parser.ReferenceFingerprints;
 
 /**
  * Represents the results of the PMD analysis. One instance of this class is persisted for
@@ -18,6 +45,25 @@ import hudson.plugins.pmd.parser.Bug;
 public class PmdResult extends BuildResult {
     private static final long serialVersionUID = 2768250056765266658L;
 
+    /** Number of seconds browsers may cache the description of a rule. */
+    private static final long DESCRIPTION_MAX_AGE = TimeUnit.DAYS.toSeconds(1);
+
+    private static final Logger LOGGER = Logger.getLogger(PmdResult.class.getName());
+    /** Name of the file that contains the warnings in pages of files. */
+    private static final String PAGES_FILE_NAME = "pmd-warnings.pages";
+    /** Name of the file that contains the numbers of warnings. */
+    private static final String SUMMARY_FILE_NAME = "pmd-summary.bin";
+    /** Name of the file that contains the warnings as delta to a previous build. */
+    private static final String DELTA_FILE_NAME = "pmd-warnings.delta";
+    /** Name of the file that contains the fingerprints of the warnings. */
+    private static final String FINGERPRINTS_FILE_NAME = "pmd-fingerprints.bin";
+
+    private transient long serializationDuration;
+    /** The numbers of warnings, read from the summary file on demand. */
+    private transient volatile WarningsSummary summary;
+    /** The index of the pages of the persisted warnings. */
+    private transient SoftReference<AnnotationPages> pages;
+
     /**
      * Creates a new instance of {@link PmdResult}.
      *
@@ -54,7 +100,22 @@ public class PmdResult extends BuildResult {
                         final boolean usePreviousBuildAsReference,
                         final boolean useStableBuildAsReference,
                         final Class<? extends ResultAction<PmdResult>> actionType) {
-        this(build, new BuildHistory(build, actionType, usePreviousBuildAsReference, useStableBuildAsReference), result, defaultEncoding, true);
+        this(build, new PmdBuildHistory(build, actionType, usePreviousBuildAsReference, useStableBuildAsReference), result,
+                defaultEncoding, true);
+    }
+
+    /**
+     * Creates a new instance of {@link PmdResult} that uses the specified history to compute the new and fixed
+     * warnings.
+     *
+     * @param build the current build as owner of this action
+     * @param defaultEncoding the default encoding to be used when reading and parsing files
+     * @param result the parsed result with all annotations
+     * @param history the history of the build
+     */
+    PmdResult(final Run<?, ?> build, final String defaultEncoding, final ParserResult result,
+              final PmdBuildHistory history) {
+        this(build, history, result, defaultEncoding, true);
     }
 
     PmdResult(final Run<?, ?> build, final BuildHistory history,
@@ -62,8 +123,522 @@ public class PmdResult extends BuildResult {
         super(build, history, result, defaultEncoding);
 
         if (canSerialize) {
-            serializeAnnotations(result.getAnnotations());
+            long start = System.currentTimeMillis();
+            writeSummary(new WarningsSummary(result.getAnnotations(), getNumberOfNewWarnings(),
+                    getNumberOfFixedWarnings()));
+            final List<FileAnnotation> annotations = new ArrayList<FileAnnotation>(result.getAnnotations());
+            AsyncResultWriter.getInstance().submit(getStorageKey(), new Runnable() {
+                @Override
+                public void run() {
+                    writeFingerprints(ReferenceFingerprints.create(annotations));
+                    if (!writeDelta(annotations)) {
+                        serializeAnnotations(annotations);
+                        writePages(annotations);
+                    }
+                }
+            });
+            serializationDuration = System.currentTimeMillis() - start;
+        }
+    }
+
+    /**
+     * Returns the PMD result of the specified build.
+     *
+     * @param run
+     *            the build
+     * @return the PMD result or {@code null} if the build has no PMD result
+     */
+    static PmdResult getPmdResult(final Run<?, ?> run) {
+        if (run != null) {
+            PmdResultAction action = run.getAction(PmdResultAction.class);
+            if (action != null) {
+                return action.getResult();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Writes the warnings as delta to the warnings of the previous build, if the {@link DeltaStorage} is enabled
+     * and the chain of deltas is shorter than the snapshot interval. The full warnings are removed only after the
+     * written delta has been read and applied successfully.
+     *
+     * @param annotations
+     *            the warnings of this result
+     * @return {@code true} if the delta has been written, {@code false} if a full snapshot needs to be written
+     */
+    private boolean writeDelta(final List<FileAnnotation> annotations) {
+        if (!DeltaStorage.isEnabled()) {
+            return false;
+        }
+        PmdResult base = findBaseResult();
+        if (base == null) {
+            return false;
+        }
+        int chainLength = base.getDeltaChainLength() + 1;
+        if (chainLength >= DeltaStorage.getSnapshotInterval()) {
+            return false;
+        }
+        try {
+            Collection<FileAnnotation> baseAnnotations = base.getAnnotations();
+            DeltaStorage.compute(base.getOwner().getNumber(), chainLength, baseAnnotations, annotations)
+                    .write(getDeltaFile());
+            List<FileAnnotation> restored = DeltaStorage.read(getDeltaFile()).apply(baseAnnotations);
+            if (restored.size() != annotations.size()) {
+                throw new IOException(String.format("Delta restores %d warnings rather than %d",
+                        restored.size(), annotations.size()));
+            }
+            serializeAnnotations(Collections.<FileAnnotation>emptyList());
+            deleteFile(getPagesFile());
+            return true;
+        }
+        catch (IOException exception) {
+            LOGGER.log(Level.WARNING, "Can't write the PMD warnings delta of " + getOwner(), exception);
+            deleteFile(getDeltaFile());
+            return false;
+        }
+        catch (IllegalStateException exception) {
+            LOGGER.log(Level.WARNING, "Can't load the PMD warnings of the base build of " + getOwner(), exception);
+            deleteFile(getDeltaFile());
+            return false;
+        }
+    }
+
+    private PmdResult findBaseResult() {
+        Run<?, ?> run = getOwner().getPreviousBuild();
+        for (int distance = 1; run != null && distance < DeltaStorage.getSnapshotInterval(); distance++) {
+            PmdResult result = getPmdResult(run);
+            if (result != null) {
+                return result;
+            }
+            run = run.getPreviousBuild();
+        }
+        return null;
+    }
+
+    private int getDeltaChainLength() {
+        File file = getDeltaFile();
+        if (!file.exists()) {
+            return 0;
+        }
+        try {
+            return DeltaStorage.read(file).getChainLength();
+        }
+        catch (IOException exception) {
+            return DeltaStorage.getSnapshotInterval();
+        }
+    }
+
+    private File getDeltaFile() {
+        return new File(getOwner().getRootDir(), DELTA_FILE_NAME);
+    }
+
+    private void deleteFile(final File file) {
+        if (file.exists() && !file.delete()) {
+            LOGGER.log(Level.WARNING, "Can't delete " + file);
+        }
+    }
+
+    /**
+     * Replaces the delta of the warnings of this result with a full snapshot, if the delta refers to the specified
+     * build. Called before the base build is deleted, so that the chain of deltas remains intact.
+     *
+     * @param deletedBuild
+     *            the number of the build that will be deleted
+     */
+    void materialize(final int deletedBuild) {
+        awaitStorage();
+
+        File file = getDeltaFile();
+        if (!file.exists()) {
+            return;
+        }
+        try {
+            if (DeltaStorage.read(file).getBaseBuild() != deletedBuild) {
+                return;
+            }
+        }
+        catch (IOException exception) {
+            LOGGER.log(Level.WARNING, "Can't read the PMD warnings delta of " + getOwner(), exception);
+            return;
+        }
+        List<FileAnnotation> annotations = new ArrayList<FileAnnotation>(getAnnotations());
+        serializeAnnotations(annotations);
+        writePages(annotations);
+        deleteFile(file);
+    }
+
+    /**
+     * Rewrites the persisted warnings of this result using the current storage format and creates the pages and the
+     * summary of the warnings.
+     *
+     * @throws IOException
+     *             if the pages of the warnings could not be written
+     */
+    void rewrite() throws IOException {
+        awaitStorage();
+
+        List<FileAnnotation> annotations = new ArrayList<FileAnnotation>(getAnnotations());
+        serializeAnnotations(annotations);
+        AnnotationPages.write(getPagesFile(), annotations);
+        writeSummary(new WarningsSummary(annotations, getNumberOfNewWarnings(), getNumberOfFixedWarnings()));
+    }
+
+    /**
+     * Returns the key of the files of this result for the {@link AsyncResultWriter}.
+     *
+     * @return the key of the files
+     */
+    private String getStorageKey() {
+        return getOwner().getRootDir().getPath();
+    }
+
+    /**
+     * Waits until the files of this result have been written.
+     */
+    private void awaitStorage() {
+        if (getOwner() != null) {
+            AsyncResultWriter.getInstance().await(getStorageKey());
+        }
+    }
+
+    private void writePages(final Collection<FileAnnotation> annotations) {
+        try {
+            AnnotationPages.write(getPagesFile(), annotations);
+        }
+        catch (IOException exception) {
+            LOGGER.log(Level.WARNING, "Can't write the PMD warnings pages of " + getOwner(), exception);
+        }
+    }
+
+    private void writeSummary(final WarningsSummary warningsSummary) {
+        try {
+            warningsSummary.write(getSummaryFile());
+        }
+        catch (IOException exception) {
+            LOGGER.log(Level.WARNING, "Can't write the PMD summary of " + getOwner(), exception);
+        }
+        summary = warningsSummary;
+    }
+
+    private void writeFingerprints(final ReferenceFingerprints fingerprints) {
+        try {
+            fingerprints.write(getFingerprintsFile());
+        }
+        catch (IOException exception) {
+            LOGGER.log(Level.WARNING, "Can't write the PMD fingerprints of " + getOwner(), exception);
+        }
+    }
+
+    private File getFingerprintsFile() {
+        return new File(getOwner().getRootDir(), FINGERPRINTS_FILE_NAME);
+    }
+
+    /**
+     * Returns the fingerprints of the warnings of this result. The fingerprints are read from a small file, the
+     * warnings are not loaded. For builds of previous releases the fingerprints are created once from the warnings.
+     *
+     * @return the fingerprints of the warnings
+     */
+    ReferenceFingerprints getFingerprints() {
+        awaitStorage();
+
+        File file = getFingerprintsFile();
+        if (file.exists()) {
+            try {
+                return ReferenceFingerprints.read(file);
+            }
+            catch (IOException exception) {
+                LOGGER.log(Level.WARNING, "Can't read the PMD fingerprints of " + getOwner(), exception);
+            }
+        }
+        ReferenceFingerprints fingerprints = ReferenceFingerprints.create(getAnnotations());
+        writeFingerprints(fingerprints);
+        return fingerprints;
+    }
+
+    private File getSummaryFile() {
+        return new File(getOwner().getRootDir(), SUMMARY_FILE_NAME);
+    }
+
+    /**
+     * Returns the warnings of this result. Recently used warnings are kept in the {@link AnnotationCache}, other
+     * warnings are loaded from disk.
+     *
+     * @return the warnings of this result
+     */
+    @Override
+    public JavaProject getProject() {
+        String key = getOwner() == null ? null : getOwner().getExternalizableId();
+        if (key == null) {
+            return loadProject();
+        }
+        JavaProject project = AnnotationCache.getInstance().get(key);
+        if (project == null) {
+            project = loadProject();
+            AnnotationCache.getInstance().put(key, project);
+        }
+        return project;
+    }
+
+    /**
+     * Loads the warnings of this result. If the warnings are stored as delta, the warnings of the base build are
+     * loaded and the delta is applied.
+     *
+     * @return the warnings of this result
+     * @throws IllegalStateException
+     *             if the warnings are stored as delta that can't be resolved: the full warnings of this result
+     *             have been removed, so an empty result would hide the warnings
+     */
+    private JavaProject loadProject() {
+        awaitStorage();
+
+        if (getOwner() != null && getDeltaFile().exists()) {
+            try {
+                DeltaStorage delta = DeltaStorage.read(getDeltaFile());
+                PmdResult base = getPmdResult(getOwner().getParent().getBuildByNumber(delta.getBaseBuild()));
+                if (base == null) {
+                    throw new IOException("Can't find base build " + delta.getBaseBuild());
+                }
+                JavaProject project = new JavaProject();
+                project.addAnnotations(delta.apply(base.getAnnotations()));
+                return project;
+            }
+            catch (IOException exception) {
+                throw new IllegalStateException("Can't resolve the PMD warnings delta of " + getOwner(), exception);
+            }
+        }
+        return super.getProject();
+    }
+
+    /**
+     * Returns the numbers of warnings of this result. The numbers are read from a small summary file, the
+     * warnings are not loaded. Builds of previous releases have no summary until the storage of these builds has
+     * been migrated using {@link StorageMigration}.
+     *
+     * @return the summary of the warnings or {@code null} if there is no summary for this build
+     */
+    public WarningsSummary getWarningsSummary() {
+        WarningsSummary current = summary;
+        if (current == null) {
+            File file = getSummaryFile();
+            if (file.exists()) {
+                try {
+                    current = WarningsSummary.read(file);
+                    summary = current;
+                }
+                catch (IOException exception) {
+                    LOGGER.log(Level.WARNING, "Can't read the PMD summary of " + getOwner(), exception);
+                }
+            }
+        }
+        return current;
+    }
+
+    private File getPagesFile() {
+        return new File(getOwner().getRootDir(), PAGES_FILE_NAME);
+    }
+
+    /**
+     * Returns the pages of the persisted warnings. The index of the pages is cached as long as there is enough
+     * memory.
+     *
+     * @return the pages or {@code null} if the warnings have been persisted by a previous release
+     */
+    private AnnotationPages getPages() {
+        AnnotationPages current = pages == null ? null : pages.get();
+        if (current == null) {
+            awaitStorage();
+        }
+        if (current == null && getPagesFile().exists()) {
+            try {
+                current = AnnotationPages.open(getPagesFile());
+                pages = new SoftReference<AnnotationPages>(current);
+            }
+            catch (IOException exception) {
+                LOGGER.log(Level.WARNING, "Can't read the PMD warnings pages of " + getOwner(), exception);
+            }
         }
+        return current;
+    }
+
+    /**
+     * Returns the detail view of the specified link. The views of a module, package, file or priority are created
+     * from the pages of the persisted warnings, so only the warnings that are shown are read from disk. All other
+     * views, and all views of results whose warnings are cached or have no pages, use the warnings of the build.
+     *
+     * @param link
+     *            the link to the detail view
+     * @param request
+     *            Stapler request
+     * @param response
+     *            Stapler response
+     * @return the detail view
+     */
+    @Override
+    public Object getDynamic(final String link, final StaplerRequest request, final StaplerResponse response) {
+        AnnotationContainer slice = createSlice(link);
+        if (slice != null) {
+            return DetailFactory.create(getResultActionType()).createDetails(link, getOwner(), slice,
+                    getDefaultEncoding(), getDisplayName());
+        }
+        return super.getDynamic(link, request, response);
+    }
+
+    /**
+     * Creates a container with the warnings that are shown by the detail view of the specified link.
+     *
+     * @param link
+     *            the link to the detail view
+     * @return the container or {@code null} if the view requires the warnings of the build
+     */
+    private AnnotationContainer createSlice(final String link) {
+        if (getOwner() == null || AnnotationCache.getInstance().contains(getOwner().getExternalizableId())) {
+            return null;
+        }
+        AnnotationPages current = getPages();
+        if (current == null) {
+            return null;
+        }
+        Collection<FileAnnotation> annotations = null;
+        for (Priority priority : Priority.values()) {
+            if (priority.name().equalsIgnoreCase(link)) {
+                annotations = getAnnotationsOfPriority(priority);
+            }
+        }
+        for (Slice slice : Slice.values()) {
+            if (link.startsWith(slice.getPrefix())) {
+                try {
+                    String name = slice.findName(current,
+                            Integer.parseInt(link.substring(slice.getPrefix().length())));
+                    if (name != null) {
+                        annotations = getSlice(slice, name);
+                    }
+                }
+                catch (NumberFormatException exception) {
+                    return null;
+                }
+            }
+        }
+        if (annotations == null) {
+            return null;
+        }
+        JavaProject project = new JavaProject();
+        project.addAnnotations(annotations);
+        return project;
+    }
+
+    /**
+     * Returns the warnings of the specified module. Only the warnings of the module are read from disk.
+     *
+     * @param moduleName
+     *            the name of the module
+     * @return the warnings of the module
+     */
+    public Collection<FileAnnotation> getAnnotationsOfModule(final String moduleName) {
+        return getSlice(Slice.MODULE, moduleName);
+    }
+
+    /**
+     * Returns the warnings of the specified package. Only the warnings of the package are read from disk.
+     *
+     * @param packageName
+     *            the name of the package
+     * @return the warnings of the package
+     */
+    public Collection<FileAnnotation> getAnnotationsOfPackage(final String packageName) {
+        return getSlice(Slice.PACKAGE, packageName);
+    }
+
+    /**
+     * Returns the warnings of the specified file. Only the warnings of the file are read from disk.
+     *
+     * @param fileName
+     *            the name of the file
+     * @return the warnings of the file
+     */
+    public Collection<FileAnnotation> getAnnotationsOfFile(final String fileName) {
+        return getSlice(Slice.FILE, fileName);
+    }
+
+    /**
+     * Returns the warnings with the specified priority. Only the warnings of the files that contain warnings with
+     * this priority are read from disk.
+     *
+     * @param priority
+     *            the priority
+     * @return the warnings with the priority
+     */
+    public Collection<FileAnnotation> getAnnotationsOfPriority(final Priority priority) {
+        AnnotationPages current = getPages();
+        if (current != null) {
+            try {
+                return current.readPriority(priority);
+            }
+            catch (IOException exception) {
+                LOGGER.log(Level.WARNING, "Can't read the PMD warnings pages of " + getOwner(), exception);
+            }
+        }
+        return getAnnotations(priority);
+    }
+
+    private Collection<FileAnnotation> getSlice(final Slice slice, final String name) {
+        AnnotationPages current = getPages();
+        if (current != null) {
+            try {
+                return slice.read(current, name);
+            }
+            catch (IOException exception) {
+                LOGGER.log(Level.WARNING, "Can't read the PMD warnings pages of " + getOwner(), exception);
+            }
+        }
+        List<FileAnnotation> annotations = new ArrayList<FileAnnotation>();
+        for (FileAnnotation annotation : getAnnotations()) {
+            if (StringUtils.equals(slice.getName(annotation), name)) {
+                annotations.add(annotation);
+            }
+        }
+        return annotations;
+    }
+
+    /**
+     * Returns the time in milliseconds that has been required to write the summary and to hand over the annotations
+     * to the {@link AsyncResultWriter} when this result has been created.
+     *
+     * @return the duration of the serialization
+     */
+    long getSerializationDuration() {
+        return serializationDuration;
+    }
+
+    /**
+     * Returns the description of the specified PMD rule. The description is cached by the browser, so that tables
+     * of warnings only need to reference the description of a rule instead of including it.
+     *
+     * @param request
+     *            Stapler request
+     * @param response
+     *            Stapler response
+     * @param ruleSet
+     *            PMD rule set
+     * @param rule
+     *            PMD rule ID
+     * @throws IOException
+     *             if the description could not be written
+     */
+    public void doRuleDescription(final StaplerRequest request, final StaplerResponse response,
+            @QueryParameter final String ruleSet, @QueryParameter final String rule) throws IOException {
+        String description = PmdMessages.getInstance().getMessage(ruleSet, rule);
+        String entityTag = '"' + Integer.toHexString(description.hashCode()) + '"';
+
+        response.setHeader("Cache-Control", "private, max-age=" + DESCRIPTION_MAX_AGE);
+        response.setHeader("ETag", entityTag);
+        if (entityTag.equals(request.getHeader("If-None-Match"))) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        response.setContentType("text/html;charset=UTF-8");
+        response.getWriter().write(description);
     }
 
     @Override
@@ -74,6 +649,7 @@ public class PmdResult extends BuildResult {
     @Override
     protected void configure(final XStream xstream) {
         xstream.alias("bug", Bug.class);
+        xstream.registerConverter(new CompactAnnotationsConverter(xstream.getMapper()), XStream.PRIORITY_VERY_HIGH);
     }
 
     @Override
@@ -100,4 +676,79 @@ public class PmdResult extends BuildResult {
     protected Class<? extends ResultAction<? extends BuildResult>> getResultActionType() {
         return PmdResultAction.class;
     }
+
+    /**
+     * The properties of the warnings that select the pages of the persisted warnings.
+     */
+    private enum Slice {
+        MODULE("module.") {
+            @Override
+            List<FileAnnotation> read(final AnnotationPages pages, final String name) throws IOException {
+                return pages.readModule(name);
+            }
+
+            @Override
+            String findName(final AnnotationPages pages, final int hashCode) {
+                return pages.findModuleName(hashCode);
+            }
+
+            @Override
+            String getName(final FileAnnotation annotation) {
+                return annotation.getModuleName();
+            }
+        },
+        PACKAGE("package.") {
+            @Override
+            List<FileAnnotation> read(final AnnotationPages pages, final String name) throws IOException {
+                return pages.readPackage(name);
+            }
+
+            @Override
+            String findName(final AnnotationPages pages, final int hashCode) {
+                return pages.findPackageName(hashCode);
+            }
+
+            @Override
+            String getName(final FileAnnotation annotation) {
+                return annotation.getPackageName();
+            }
+        },
+        FILE("file.") {
+            @Override
+            List<FileAnnotation> read(final AnnotationPages pages, final String name) throws IOException {
+                return pages.readFile(name);
+            }
+
+            @Override
+            String findName(final AnnotationPages pages, final int hashCode) {
+                return pages.findFileName(hashCode);
+            }
+
+            @Override
+            String getName(final FileAnnotation annotation) {
+                return annotation.getFileName();
+            }
+        };
+
+        private final String prefix;
+
+        Slice(final String prefix) {
+            this.prefix = prefix;
+        }
+
+        /**
+         * Returns the prefix of the links to the detail views of this slice.
+         *
+         * @return the prefix of the links
+         */
+        String getPrefix() {
+            return prefix;
+        }
+
+        abstract List<FileAnnotation> read(AnnotationPages pages, String name) throws IOException;
+
+        abstract String findName(AnnotationPages pages, int hashCode);
+
+        abstract String getName(FileAnnotation annotation);
+    }
 }
@@ -2,6 +2,9 @@ package hudson.plugins.pmd;
 
 import java.util.Collection;
 
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
 import hudson.model.Action;
 import hudson.model.Run;
 import hudson.plugins.analysis.core.AbstractResultAction;
@@ -19,7 +22,11 @@ import hudson.plugins.analysis.core.PluginDescriptor;
  *
  * @author Ulli Hafner
  */
+@ExportedBean
 public class PmdResultAction extends AbstractResultAction<PmdResult> {
+    /** The durations of the stages of publishing the results, {@code null} for builds of older releases. */
+    private StageTimings timings;
+
     /**
      * Creates a new instance of <code>PmdResultAction</code>.
      *
@@ -34,6 +41,36 @@ public class PmdResultAction extends AbstractResultAction<PmdResult> {
         super(owner, new PmdHealthDescriptor(healthDescriptor), result);
     }
 
+    /**
+     * Returns the durations of the stages of publishing the results.
+     *
+     * @return the timings, or {@code null} if no timings have been recorded
+     */
+    @Exported
+    public StageTimings getTimings() {
+        return timings;
+    }
+
+    /**
+     * Returns the numbers of warnings of this build.
+     *
+     * @return the summary of the warnings or {@code null} if the storage of this build has not been migrated yet
+     */
+    @Exported
+    public WarningsSummary getWarningsSummary() {
+        return getResult().getWarningsSummary();
+    }
+
+    /**
+     * Sets the durations of the stages of publishing the results.
+     *
+     * @param timings
+     *            the timings
+     */
+    void setTimings(final StageTimings timings) {
+        this.timings = timings;
+    }
+
     @Override
     public Collection<? extends Action> getProjectActions() {
         return asSet(new PmdProjectAction(getJob()));
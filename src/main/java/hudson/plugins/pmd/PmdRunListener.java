@@ -0,0 +1,37 @@
+package hudson.plugins.pmd;
+
+import hudson.Extension;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.model.listeners.RunListener;
+
+/**
+ * Keeps the stored PMD warnings consistent when builds are deleted: the warnings of the next build with PMD results
+ * are materialized if they are stored as delta to the deleted build, and the deleted build is removed from the
+ * {@link AnnotationCache}. Additionally, the {@link ReferenceBuildIndex} is updated when builds complete or are
+ * deleted.
+ *
+ * @author Ulli Hafner
+ */
+@Extension
+public class PmdRunListener extends RunListener<Run<?, ?>> {
+    @Override
+    public void onCompleted(final Run<?, ?> run, final TaskListener listener) {
+        if (PmdResult.getPmdResult(run) != null) {
+            ReferenceBuildIndex.getInstance().completed(run);
+        }
+    }
+
+    @Override
+    public void onDeleted(final Run<?, ?> run) {
+        for (Run<?, ?> next = run.getNextBuild(); next != null; next = next.getNextBuild()) {
+            PmdResult result = PmdResult.getPmdResult(next);
+            if (result != null) {
+                result.materialize(run.getNumber());
+                break;
+            }
+        }
+        AnnotationCache.getInstance().remove(run.getExternalizableId());
+        ReferenceBuildIndex.getInstance().deleted(run);
+    }
+}
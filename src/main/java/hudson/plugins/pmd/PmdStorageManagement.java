@@ -0,0 +1,90 @@
+package hudson.plugins.pmd;
+
+import org.kohsuke.stapler.HttpResponse;
+import org.kohsuke.stapler.HttpResponses;
+import org.kohsuke.stapler.QueryParameter;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+import org.kohsuke.stapler.interceptor.RequirePOST;
+
+import jenkins.model.Jenkins;
+
+import hudson.Extension;
+import hudson.model.Api;
+import hudson.model.ManagementLink;
+
+/**
+ * Shows the state of the storage of the PMD warnings on the management page, e.g. the statistics of the
+ * {@link AnnotationCache}, and starts the {@link StorageMigration} of existing builds.
+ *
+ * @author Ulli Hafner
+ */
+@Extension @ExportedBean
+public class PmdStorageManagement extends ManagementLink {
+    @Override
+    public String getIconFileName() {
+        return PmdDescriptor.ICON_URL;
+    }
+
+    @Override
+    public String getUrlName() {
+        return "pmd-storage";
+    }
+
+    @Override
+    public String getDisplayName() {
+        return Messages.PMD_Storage_Name();
+    }
+
+    @Override
+    public String getDescription() {
+        return Messages.PMD_Storage_Description();
+    }
+
+    /**
+     * Returns the cache of the PMD warnings.
+     *
+     * @return the cache
+     */
+    @Exported
+    public AnnotationCache getCache() {
+        return AnnotationCache.getInstance();
+    }
+
+    /**
+     * Returns the state of the migration of the PMD warnings of existing builds.
+     *
+     * @return the migration
+     */
+    @Exported
+    public StorageMigration getMigration() {
+        return StorageMigration.getInstance();
+    }
+
+    /**
+     * Starts the migration of the PMD warnings of all existing builds.
+     *
+     * @param threads
+     *            the number of threads that convert builds in parallel
+     * @return redirects to the storage page
+     */
+    @RequirePOST
+    public HttpResponse doMigrate(@QueryParameter final int threads) {
+        Jenkins.getActiveInstance().checkPermission(Jenkins.ADMINISTER);
+
+        StorageMigration.getInstance().start(threads);
+
+        return HttpResponses.redirectToDot();
+    }
+
+    /**
+     * Returns the remote API of the storage statistics.
+     *
+     * @return the remote API
+     */
+    public Api getApi() {
+        Jenkins.getActiveInstance().checkPermission(Jenkins.ADMINISTER);
+
+        return new Api(this);
+    }
+}
@@ -0,0 +1,56 @@
+package hudson.plugins.pmd;
+
+import java.util.Collection;
+
+import hudson.model.Run;
+import hudson.plugins.analysis.util.model.FileAnnotation;
+import hudson.plugins.analysis.views.DetailFactory;
+import hudson.plugins.analysis.views.TabDetail;
+
+/**
+ * Tab of the warnings of a PMD result. The warnings and details tabs link to the cached description of each PMD
+ * rule (see {@link PmdResult#doRuleDescription}) instead of including the description for every warning.
+ *
+ * @author Ulli Hafner
+ */
+public class PmdTabDetail extends TabDetail {
+    private static final long serialVersionUID = -1396244431917150384L;
+
+    /**
+     * Creates a new instance of {@link PmdTabDetail}.
+     *
+     * @param owner
+     *            current build as owner of this object
+     * @param detailFactory
+     *            factory to create detail objects with
+     * @param annotations
+     *            the module to show the details for
+     * @param url
+     *            URL to render the content of this tab
+     * @param defaultEncoding
+     *            the default encoding to be used when reading and parsing files
+     */
+    public PmdTabDetail(final Run<?, ?> owner, final DetailFactory detailFactory,
+            final Collection<FileAnnotation> annotations, final String url, final String defaultEncoding) {
+        super(owner, detailFactory, annotations, url, defaultEncoding);
+    }
+
+    /**
+     * Returns the URL of the PMD result of the owner, relative to the root URL of Jenkins.
+     *
+     * @return the URL of the PMD result
+     */
+    public String getResultUrl() {
+        return getOwner().getUrl() + PmdDescriptor.RESULT_URL + "/";
+    }
+
+    @Override
+    public String getWarnings() {
+        return "/hudson/plugins/pmd/PmdTabDetail/warnings.jelly";
+    }
+
+    @Override
+    public String getDetails() {
+        return "/hudson/plugins/pmd/PmdTabDetail/details.jelly";
+    }
+}
@@ -0,0 +1,220 @@
+package hudson.plugins.pmd;
+
+import java.io.Serializable;
+
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+
+import hudson.Extension;
+import hudson.model.AbstractDescribableImpl;
+import hudson.model.Descriptor;
+import hudson.plugins.pmd.parser.ViolationFilter;
+
+/**
+ * The include and exclude patterns of the violations of the PMD reports, as configured for a
+ * {@link PmdPublisher} or {@link PmdReporter}. Creates the {@link ViolationFilter} that is applied by the parser. This
+ * class is serializable since the {@link PmdReporter} is sent to the Maven process.
+ *
+ * @author Ulli Hafner
+ */
+public class PmdViolationFilter extends AbstractDescribableImpl<PmdViolationFilter> implements Serializable {
+    private static final long serialVersionUID = 2410745309146125207L;
+
+    private String includeRuleSets;
+    private String excludeRuleSets;
+    private String includeRules;
+    private String excludeRules;
+    private String includePriorities;
+    private String excludePriorities;
+    private String includeFiles;
+    private String excludeFiles;
+
+    /**
+     * Creates a new instance of {@link PmdViolationFilter} that accepts all violations.
+     */
+    @DataBoundConstructor
+    public PmdViolationFilter() {
+        super();
+    }
+
+    /**
+     * Returns the rule sets to include.
+     *
+     * @return comma separated list of rule set patterns
+     */
+    public String getIncludeRuleSets() {
+        return includeRuleSets;
+    }
+
+    /**
+     * Sets the rule sets to include.
+     *
+     * @param includeRuleSets comma separated list of rule set patterns
+     */
+    @DataBoundSetter
+    public void setIncludeRuleSets(final String includeRuleSets) {
+        this.includeRuleSets = includeRuleSets;
+    }
+
+    /**
+     * Returns the rule sets to exclude.
+     *
+     * @return comma separated list of rule set patterns
+     */
+    public String getExcludeRuleSets() {
+        return excludeRuleSets;
+    }
+
+    /**
+     * Sets the rule sets to exclude.
+     *
+     * @param excludeRuleSets comma separated list of rule set patterns
+     */
+    @DataBoundSetter
+    public void setExcludeRuleSets(final String excludeRuleSets) {
+        this.excludeRuleSets = excludeRuleSets;
+    }
+
+    /**
+     * Returns the rules to include.
+     *
+     * @return comma separated list of rule patterns
+     */
+    public String getIncludeRules() {
+        return includeRules;
+    }
+
+    /**
+     * Sets the rules to include.
+     *
+     * @param includeRules comma separated list of rule patterns
+     */
+    @DataBoundSetter
+    public void setIncludeRules(final String includeRules) {
+        this.includeRules = includeRules;
+    }
+
+    /**
+     * Returns the rules to exclude.
+     *
+     * @return comma separated list of rule patterns
+     */
+    public String getExcludeRules() {
+        return excludeRules;
+    }
+
+    /**
+     * Sets the rules to exclude.
+     *
+     * @param excludeRules comma separated list of rule patterns
+     */
+    @DataBoundSetter
+    public void setExcludeRules(final String excludeRules) {
+        this.excludeRules = excludeRules;
+    }
+
+    /**
+     * Returns the PMD priorities to include.
+     *
+     * @return comma separated list of PMD priorities (1 to 5)
+     */
+    public String getIncludePriorities() {
+        return includePriorities;
+    }
+
+    /**
+     * Sets the PMD priorities to include.
+     *
+     * @param includePriorities comma separated list of PMD priorities (1 to 5)
+     */
+    @DataBoundSetter
+    public void setIncludePriorities(final String includePriorities) {
+        this.includePriorities = includePriorities;
+    }
+
+    /**
+     * Returns the PMD priorities to exclude.
+     *
+     * @return comma separated list of PMD priorities (1 to 5)
+     */
+    public String getExcludePriorities() {
+        return excludePriorities;
+    }
+
+    /**
+     * Sets the PMD priorities to exclude.
+     *
+     * @param excludePriorities comma separated list of PMD priorities (1 to 5)
+     */
+    @DataBoundSetter
+    public void setExcludePriorities(final String excludePriorities) {
+        this.excludePriorities = excludePriorities;
+    }
+
+    /**
+     * Returns the files to include.
+     *
+     * @return comma separated list of Ant file-set patterns
+     */
+    public String getIncludeFiles() {
+        return includeFiles;
+    }
+
+    /**
+     * Sets the files to include.
+     *
+     * @param includeFiles comma separated list of Ant file-set patterns
+     */
+    @DataBoundSetter
+    public void setIncludeFiles(final String includeFiles) {
+        this.includeFiles = includeFiles;
+    }
+
+    /**
+     * Returns the files to exclude.
+     *
+     * @return comma separated list of Ant file-set patterns
+     */
+    public String getExcludeFiles() {
+        return excludeFiles;
+    }
+
+    /**
+     * Sets the files to exclude.
+     *
+     * @param excludeFiles comma separated list of Ant file-set patterns
+     */
+    @DataBoundSetter
+    public void setExcludeFiles(final String excludeFiles) {
+        this.excludeFiles = excludeFiles;
+    }
+
+    /**
+     * Creates the filter for the violations of the PMD reports.
+     *
+     * @return the filter
+     */
+    public ViolationFilter createFilter() {
+        ViolationFilter filter = new ViolationFilter();
+        filter.setIncludeRuleSets(getIncludeRuleSets());
+        filter.setExcludeRuleSets(getExcludeRuleSets());
+        filter.setIncludeRules(getIncludeRules());
+        filter.setExcludeRules(getExcludeRules());
+        filter.setIncludePriorities(getIncludePriorities());
+        filter.setExcludePriorities(getExcludePriorities());
+        filter.setIncludeFiles(getIncludeFiles());
+        filter.setExcludeFiles(getExcludeFiles());
+        return filter;
+    }
+
+    /**
+     * Descriptor of the {@link PmdViolationFilter}.
+     */
+    @Extension
+    public static class DescriptorImpl extends Descriptor<PmdViolationFilter> {
+        @Override
+        public String getDisplayName() {
+            return "";
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package hudson.plugins.pmd;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import hudson.model.Job;
+import hudson.model.Result;
+import hudson.model.Run;
+
+/**
+ * Remembers for each job the last stable, the last successful and the last valid build with a PMD result, so that
+ * the reference build of a new build is found in constant time. The builds are classified like in
+ * {@link hudson.plugins.analysis.core.BuildHistory}: a stable build succeeded, a successful build did not fail, and
+ * both passed the thresholds of PMD. A valid build did not fail or has been failed by PMD. An entry is created by scanning the history of a job
+ * once; it is updated when builds complete and dropped when one of the remembered builds is deleted or when the job
+ * is renamed, moved or deleted (see {@link PmdItemListener}).
+ *
+ * @author Ulli Hafner
+ */
+final class ReferenceBuildIndex {
+    /** Returned if the reference build can't be determined using the index. */
+    static final int UNKNOWN = -1;
+    /** Returned if there is no reference build. */
+    static final int NONE = 0;
+
+    /** Singleton instance. */
+    private static final ReferenceBuildIndex INSTANCE = new ReferenceBuildIndex();
+
+    private final Map<String, Entry> entries = new HashMap<String, Entry>();
+
+    /**
+     * Returns the singleton instance.
+     *
+     * @return the singleton instance
+     */
+    static ReferenceBuildIndex getInstance() {
+        return INSTANCE;
+    }
+
+    private ReferenceBuildIndex() {
+        // prevents instantiation
+    }
+
+    /**
+     * Returns the number of the reference build of the specified build. The reference build is the last stable (or
+     * successful) build with a PMD result. If there is no such build, then the last valid build with a PMD result is
+     * used, like {@link hudson.plugins.analysis.core.BuildHistory} does.
+     *
+     * @param baseline
+     *            the build to find the reference build for
+     * @param mustBeStable
+     *            determines whether the reference build needs to be stable or just successful
+     * @return the number of the reference build, {@link #NONE} if there is no reference build, or {@link #UNKNOWN}
+     *         if the index can't be used for the build, since newer builds exist
+     */
+    int getReferenceBuildNumber(final Run<?, ?> baseline, final boolean mustBeStable) {
+        Job<?, ?> job = baseline.getParent();
+        Entry entry = getEntry(job.getFullName());
+        if (entry == null) {
+            entry = scan(baseline);
+            if (baseline != job.getLastBuild()) {
+                return entry.get(mustBeStable);
+            }
+            putEntry(job.getFullName(), entry);
+        }
+        int number = entry.get(mustBeStable);
+        if (number >= baseline.getNumber()) {
+            return UNKNOWN;
+        }
+        return number;
+    }
+
+    private Entry scan(final Run<?, ?> baseline) {
+        int lastStable = NONE;
+        int lastSuccessful = NONE;
+        int last = NONE;
+        for (Run<?, ?> run = baseline.getPreviousBuild(); run != null && lastStable == NONE;
+                run = run.getPreviousBuild()) {
+            PmdResult result = PmdResult.getPmdResult(run);
+            if (result != null) {
+                if (last == NONE && isValid(run, result)) {
+                    last = run.getNumber();
+                }
+                if (lastSuccessful == NONE && isSuccessful(run, result)) {
+                    lastSuccessful = run.getNumber();
+                }
+                if (isStable(run, result)) {
+                    lastStable = run.getNumber();
+                }
+            }
+        }
+        return new Entry(lastStable, lastSuccessful, last);
+    }
+
+    private static boolean isStable(final Run<?, ?> run, final PmdResult result) {
+        return run.getResult() == Result.SUCCESS && result.getPluginResult() == Result.SUCCESS;
+    }
+
+    private static boolean isSuccessful(final Run<?, ?> run, final PmdResult result) {
+        Result buildResult = run.getResult();
+        return buildResult != null && buildResult.isBetterThan(Result.FAILURE)
+                && result.getPluginResult() == Result.SUCCESS;
+    }
+
+    private static boolean isValid(final Run<?, ?> run, final PmdResult result) {
+        Result buildResult = run.getResult();
+        return buildResult != null && (buildResult.isBetterThan(Result.FAILURE)
+                || result.getPluginResult().isWorseOrEqualTo(Result.FAILURE));
+    }
+
+    /**
+     * Updates the index after the specified build with a PMD result has been completed.
+     *
+     * @param run
+     *            the completed build
+     */
+    synchronized void completed(final Run<?, ?> run) {
+        String name = run.getParent().getFullName();
+        Entry entry = entries.get(name);
+        PmdResult result = PmdResult.getPmdResult(run);
+        if (entry != null && result != null) {
+            int number = run.getNumber();
+            entries.put(name, new Entry(
+                    isStable(run, result) ? Math.max(entry.lastStable, number) : entry.lastStable,
+                    isSuccessful(run, result) ? Math.max(entry.lastSuccessful, number) : entry.lastSuccessful,
+                    isValid(run, result) ? Math.max(entry.last, number) : entry.last));
+        }
+    }
+
+    /**
+     * Updates the index before the specified build is deleted.
+     *
+     * @param run
+     *            the build that will be deleted
+     */
+    synchronized void deleted(final Run<?, ?> run) {
+        String name = run.getParent().getFullName();
+        Entry entry = entries.get(name);
+        if (entry != null && entry.contains(run.getNumber())) {
+            entries.remove(name);
+        }
+    }
+
+    /**
+     * Drops the entries of the specified item and of all items it contains. Called when an item is renamed, moved
+     * or deleted, so that a new item with the same name does not use the entry.
+     *
+     * @param fullName
+     *            the full name of the item
+     */
+    synchronized void invalidate(final String fullName) {
+        Iterator<String> names = entries.keySet().iterator();
+        while (names.hasNext()) {
+            String name = names.next();
+            if (name.equals(fullName) || name.startsWith(fullName + '/')) {
+                names.remove();
+            }
+        }
+    }
+
+    /**
+     * Returns whether there is an entry for the specified job.
+     *
+     * @param fullName
+     *            the full name of the job
+     * @return {@code true} if there is an entry for the job
+     */
+    synchronized boolean isIndexed(final String fullName) {
+        return entries.containsKey(fullName);
+    }
+
+    private synchronized Entry getEntry(final String name) {
+        return entries.get(name);
+    }
+
+    private synchronized void putEntry(final String name, final Entry entry) {
+        if (!entries.containsKey(name)) {
+            entries.put(name, entry);
+        }
+    }
+
+    /**
+     * The numbers of the last stable, the last successful and the last valid build of a job.
+     */
+    private static final class Entry {
+        private final int lastStable;
+        private final int lastSuccessful;
+        private final int last;
+
+        Entry(final int lastStable, final int lastSuccessful, final int last) {
+            this.lastStable = lastStable;
+            this.lastSuccessful = lastSuccessful;
+            this.last = last;
+        }
+
+        int get(final boolean mustBeStable) {
+            int number = mustBeStable ? lastStable : lastSuccessful;
+            return number == NONE ? last : number;
+        }
+
+        boolean contains(final int number) {
+            return lastStable == number || lastSuccessful == number || last == number;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package hudson.plugins.pmd;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import org.kohsuke.args4j.Argument;
+
+import jenkins.model.Jenkins;
+
+import hudson.Extension;
+import hudson.cli.CLICommand;
+import hudson.plugins.pmd.parser.PmdMessages;
+
+/**
+ * Reloads the descriptions of the PMD rules, including the rules of custom rule sets. The new descriptions replace
+ * the current ones when all rule sets have been loaded.
+ *
+ * @author Ulli Hafner
+ */
+@Extension
+public class ReloadPmdRulesCommand extends CLICommand {
+    /** References to custom rule sets. */
+    @Argument(metaVar = "RULESET", usage = "File name or class path resource of a custom PMD rule set")
+    private List<String> ruleSets = new ArrayList<String>();
+
+    @Override
+    public String getShortDescription() {
+        return Messages.PMD_ReloadRules_Description();
+    }
+
+    @Override
+    protected int run() throws InterruptedException {
+        Jenkins.getActiveInstance().checkPermission(Jenkins.ADMINISTER);
+
+        try {
+            int size = PmdMessages.getInstance().reload(ruleSets, PmdPlugin.getIndexFile()).get();
+            stdout.println("Loaded " + size + " PMD rule sets.");
+            return 0;
+        }
+        catch (ExecutionException exception) {
+            stderr.println("Can't load PMD rule sets: " + exception.getCause().getMessage());
+            return 1;
+        }
+    }
+}
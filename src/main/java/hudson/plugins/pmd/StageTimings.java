@@ -0,0 +1,173 @@
+package hudson.plugins.pmd;
+
+import java.io.Serializable;
+import java.util.concurrent.TimeUnit;
+
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+/**
+ * The durations of the individual stages of publishing the PMD results of a build. All durations are given in
+ * milliseconds. The timings are persisted with the {@link PmdResultAction} and are available in the remote API, so
+ * they can be compared across builds.
+ *
+ * @author Ulli Hafner
+ */
+@ExportedBean
+public class StageTimings implements Serializable {
+    private static final long serialVersionUID = 3226563470006845066L;
+
+    private static final long MILLIS_PER_SECOND = TimeUnit.SECONDS.toMillis(1);
+
+    private long scan;
+    private long parse;
+    private long transfer;
+    private long blame;
+    private long evaluation;
+    private long serialization;
+    private long bytesRead;
+    private int numberOfFiles;
+    private int numberOfWarnings;
+
+    /**
+     * Records the statistics of the agent and the total duration of the workspace call.
+     *
+     * @param statistics
+     *            the statistics of the agent
+     * @param total
+     *            the total duration of the workspace call, including the transfer of the results
+     * @param warnings
+     *            the number of parsed warnings
+     */
+    void recordParsing(final ParserStatistics statistics, final long total, final int warnings) {
+        scan = statistics.getScanDuration();
+        parse = statistics.getParseDuration();
+        transfer = Math.max(0, total - scan - parse);
+        bytesRead = statistics.getBytesRead();
+        numberOfFiles = statistics.getNumberOfFiles();
+        numberOfWarnings = warnings;
+    }
+
+    void recordBlame(final long duration) {
+        blame = duration;
+    }
+
+    void recordEvaluation(final long duration) {
+        evaluation = duration;
+    }
+
+    void recordSerialization(final long duration) {
+        serialization = duration;
+    }
+
+    /**
+     * Returns the time to find the report files in the workspace.
+     *
+     * @return the duration in milliseconds
+     */
+    @Exported
+    public long getScan() {
+        return scan;
+    }
+
+    /**
+     * Returns the time to parse the report files.
+     *
+     * @return the duration in milliseconds
+     */
+    @Exported
+    public long getParse() {
+        return parse;
+    }
+
+    /**
+     * Returns the time to transfer the parsed warnings from the agent to the controller.
+     *
+     * @return the duration in milliseconds
+     */
+    @Exported
+    public long getTransfer() {
+        return transfer;
+    }
+
+    /**
+     * Returns the time to determine the authors of the warnings.
+     *
+     * @return the duration in milliseconds
+     */
+    @Exported
+    public long getBlame() {
+        return blame;
+    }
+
+    /**
+     * Returns the time to compute the new and fixed warnings and to evaluate the quality gates.
+     *
+     * @return the duration in milliseconds
+     */
+    @Exported
+    public long getEvaluation() {
+        return evaluation;
+    }
+
+    /**
+     * Returns the time to serialize the warnings of the build.
+     *
+     * @return the duration in milliseconds
+     */
+    @Exported
+    public long getSerialization() {
+        return serialization;
+    }
+
+    /**
+     * Returns the total size of the parsed report files.
+     *
+     * @return the number of bytes
+     */
+    @Exported
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    /**
+     * Returns the number of parsed report files.
+     *
+     * @return the number of files
+     */
+    @Exported
+    public int getNumberOfFiles() {
+        return numberOfFiles;
+    }
+
+    /**
+     * Returns the number of parsed warnings per second.
+     *
+     * @return the throughput of the parser
+     */
+    @Exported
+    public long getWarningsPerSecond() {
+        return perSecond(numberOfWarnings, parse);
+    }
+
+    /**
+     * Returns the number of parsed bytes per second.
+     *
+     * @return the throughput of the parser
+     */
+    @Exported
+    public long getBytesPerSecond() {
+        return perSecond(bytesRead, parse);
+    }
+
+    private long perSecond(final long value, final long duration) {
+        return value * MILLIS_PER_SECOND / Math.max(1, duration);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("scan: %d ms, parse: %d ms (%d files, %d bytes, %d warnings/s), transfer: %d ms, "
+                + "blame: %d ms, new and fixed warnings: %d ms, serialization: %d ms",
+                scan, parse, numberOfFiles, bytesRead, getWarningsPerSecond(), transfer, blame, evaluation, serialization);
+    }
+}
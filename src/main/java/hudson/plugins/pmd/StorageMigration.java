@@ -0,0 +1,313 @@
+package hudson.plugins.pmd;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.commons.io.IOUtils;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+import jenkins.model.Jenkins;
+
+import hudson.model.Action;
+import hudson.model.Job;
+import hudson.model.Run;
+import hudson.plugins.analysis.core.ResultAction;
+import hudson.plugins.pmd.parser.CompactAnnotationsConverter;
+
+/**
+ * Rewrites the PMD warnings of all existing builds in the current storage format. The builds are converted in
+ * parallel by a limited number of low priority threads. Builds that already use the current format are skipped, so
+ * an interrupted migration may simply be started again. The conversion also creates the summary of the warnings
+ * that is exported by the remote API, so builds without a summary are converted as well. Each file is replaced
+ * atomically. The reported saving is the net change of the size of all PMD files of the converted builds, i.e. it
+ * includes the files that are created by the conversion.
+ *
+ * @author Ulli Hafner
+ */
+@ExportedBean
+public final class StorageMigration {
+    private static final Logger LOGGER = Logger.getLogger(StorageMigration.class.getName());
+    /** Number of bytes that are scanned for the format marker of the compact format. */
+    private static final int HEADER_SIZE = 512;
+    private static final String WARNINGS_FILE_NAME = "pmd-warnings.xml";
+    private static final String SUMMARY_FILE_NAME = "pmd-summary.bin";
+    /** Selects the files of a build directory that contain PMD warnings or derived data. */
+    private static final FileFilter PMD_FILES = new FileFilter() {
+        @Override
+        public boolean accept(final File file) {
+            return file.isFile() && file.getName().startsWith("pmd-");
+        }
+    };
+
+    /** Singleton instance. */
+    private static final StorageMigration INSTANCE = new StorageMigration();
+
+    private final AtomicLong scanned = new AtomicLong();
+    private final AtomicLong converted = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong bytesSaved = new AtomicLong();
+    private volatile boolean running;
+
+    /**
+     * Returns the singleton instance.
+     *
+     * @return the singleton instance
+     */
+    public static StorageMigration getInstance() {
+        return INSTANCE;
+    }
+
+    private StorageMigration() {
+        // prevents instantiation
+    }
+
+    /**
+     * Starts the migration of all builds in a background thread.
+     *
+     * @param threads
+     *            the number of threads that convert builds in parallel, at most one thread per available processor
+     *            is used
+     * @return {@code true} if the migration has been started, {@code false} if a migration is already running
+     */
+    public synchronized boolean start(final int threads) {
+        if (running) {
+            return false;
+        }
+        running = true;
+        scanned.set(0);
+        converted.set(0);
+        skipped.set(0);
+        failed.set(0);
+        bytesSaved.set(0);
+
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    migrate(Math.min(Math.max(1, threads), Runtime.getRuntime().availableProcessors()));
+                }
+                catch (InterruptedException exception) {
+                    LOGGER.log(Level.WARNING, "Migration of PMD warnings has been interrupted", exception);
+                }
+                finally {
+                    running = false;
+                }
+            }
+        }, "PMD storage migration");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+
+        return true;
+    }
+
+    private void migrate(final int threads) throws InterruptedException {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(threads),
+                new LowPriorityThreadFactory("PMD storage migration", Thread.MIN_PRIORITY),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        try {
+            for (final Job<?, ?> job : Jenkins.getActiveInstance().getAllItems(Job.class)) {
+                File[] buildDirectories = job.getBuildDir().listFiles();
+                if (buildDirectories == null) {
+                    continue;
+                }
+                for (final File buildDirectory : buildDirectories) {
+                    final File warnings = new File(buildDirectory, WARNINGS_FILE_NAME);
+                    if (!warnings.isFile()) {
+                        continue;
+                    }
+                    scanned.incrementAndGet();
+                    executor.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            migrate(job, buildDirectory, warnings);
+                        }
+                    });
+                }
+            }
+        }
+        finally {
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void migrate(final Job<?, ?> job, final File buildDirectory, final File warnings) {
+        if (isMigrated(buildDirectory, warnings) || !buildDirectory.getName().matches("\\d+")) {
+            skipped.incrementAndGet();
+            return;
+        }
+        Run<?, ?> run = job.getBuildByNumber(Integer.parseInt(buildDirectory.getName()));
+        if (run == null) {
+            skipped.incrementAndGet();
+            return;
+        }
+        long size = getSizeOfPmdFiles(buildDirectory);
+        try {
+            for (Action action : run.getActions()) {
+                if (action instanceof ResultAction && ((ResultAction<?>)action).getResult() instanceof PmdResult) {
+                    ((PmdResult)((ResultAction<?>)action).getResult()).rewrite();
+                }
+            }
+        }
+        catch (IOException exception) {
+            failed.incrementAndGet();
+            LOGGER.log(Level.WARNING, "Can't migrate PMD warnings of " + buildDirectory, exception);
+            return;
+        }
+        catch (IllegalStateException exception) {
+            failed.incrementAndGet();
+            LOGGER.log(Level.WARNING, "Can't load PMD warnings of " + buildDirectory, exception);
+            return;
+        }
+        if (isMigrated(buildDirectory, warnings)) {
+            converted.incrementAndGet();
+            bytesSaved.addAndGet(size - getSizeOfPmdFiles(buildDirectory));
+        }
+        else {
+            skipped.incrementAndGet();
+        }
+    }
+
+    private boolean isMigrated(final File buildDirectory, final File warnings) {
+        return hasSummary(new File(buildDirectory, SUMMARY_FILE_NAME)) && isCompact(warnings);
+    }
+
+    /**
+     * Returns whether the specified file contains a readable summary. Broken summaries, e.g. of a conversion that
+     * has been interrupted by a crash, are reported as missing, so that the build is converted again.
+     *
+     * @param summary
+     *            the file with the summary
+     * @return {@code true} if the summary can be read
+     */
+    private boolean hasSummary(final File summary) {
+        if (!summary.isFile()) {
+            return false;
+        }
+        try {
+            WarningsSummary.read(summary);
+            return true;
+        }
+        catch (IOException exception) {
+            LOGGER.log(Level.FINE, "Can't read the summary " + summary, exception);
+            return false;
+        }
+    }
+
+    private long getSizeOfPmdFiles(final File buildDirectory) {
+        long size = 0;
+        File[] files = buildDirectory.listFiles(PMD_FILES);
+        if (files != null) {
+            for (File file : files) {
+                size += file.length();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Returns whether the specified file contains warnings in the compact format. Files that can't be read are
+     * reported as not compact, so that the conversion reports the error.
+     *
+     * @param warnings
+     *            the file with the warnings
+     * @return {@code true} if the warnings use the compact format
+     */
+    private boolean isCompact(final File warnings) {
+        InputStream input = null;
+        try {
+            input = new FileInputStream(warnings);
+            byte[] header = new byte[HEADER_SIZE];
+            int length = IOUtils.read(input, header);
+            return new String(header, 0, length, "UTF-8").contains(
+                    CompactAnnotationsConverter.FORMAT_ATTRIBUTE + "=\"" + CompactAnnotationsConverter.COMPACT_FORMAT);
+        }
+        catch (IOException exception) {
+            LOGGER.log(Level.FINE, "Can't read the header of " + warnings, exception);
+            return false;
+        }
+        finally {
+            IOUtils.closeQuietly(input);
+        }
+    }
+
+    /**
+     * Returns whether a migration is running.
+     *
+     * @return {@code true} if a migration is running
+     */
+    @Exported
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Returns the number of builds with PMD warnings that have been found.
+     *
+     * @return the number of builds found
+     */
+    @Exported
+    public long getScanned() {
+        return scanned.get();
+    }
+
+    /**
+     * Returns the number of builds that have been converted.
+     *
+     * @return the number of converted builds
+     */
+    @Exported
+    public long getConverted() {
+        return converted.get();
+    }
+
+    /**
+     * Returns the number of builds that did not need to be converted.
+     *
+     * @return the number of skipped builds
+     */
+    @Exported
+    public long getSkipped() {
+        return skipped.get();
+    }
+
+    /**
+     * Returns the number of builds that could not be converted.
+     *
+     * @return the number of failed builds
+     */
+    @Exported
+    public long getFailed() {
+        return failed.get();
+    }
+
+    /**
+     * Returns the net number of bytes that have been saved by the conversion: the difference of the size of all PMD
+     * files of the converted builds before and after the conversion.
+     *
+     * @return the number of bytes saved, negative if the converted builds require more space
+     */
+    @Exported
+    public long getBytesSaved() {
+        return bytesSaved.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d builds found, %d converted, %d skipped, %d failed, %d KB saved",
+                getScanned(), getConverted(), getSkipped(), getFailed(), getBytesSaved() / 1024);
+    }
+}
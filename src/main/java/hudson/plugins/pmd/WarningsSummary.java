@@ -0,0 +1,288 @@
+package hudson.plugins.pmd;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import org.apache.commons.lang.StringUtils;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+import hudson.plugins.analysis.util.model.FileAnnotation;
+import hudson.plugins.analysis.util.model.Priority;
+
+/**
+ * The numbers of PMD warnings of a build: total, new, fixed, per priority, per module and per rule. The summary is
+ * persisted in a small file next to the warnings, so that counts never require loading the warnings.
+ * <p>
+ * Layout: magic number, version, total, new, fixed, high, normal, low, modules with counts, rules with counts.
+ * </p>
+ *
+ * @author Ulli Hafner
+ */
+@ExportedBean
+public class WarningsSummary {
+    private static final int MAGIC = 0x504d4453; // PMDS
+    private static final int VERSION = 1;
+    /** Separates the rule set and the rule in the keys of the rule counts. */
+    private static final String RULE_SEPARATOR = "/";
+
+    private final int total;
+    private final int newWarnings;
+    private final int fixedWarnings;
+    private final int[] priorities;
+    private final Map<String, Integer> modules;
+    private final Map<String, Integer> rules;
+
+    /**
+     * Creates a summary of the specified warnings.
+     *
+     * @param annotations
+     *            the warnings
+     * @param newWarnings
+     *            the number of new warnings
+     * @param fixedWarnings
+     *            the number of fixed warnings
+     */
+    WarningsSummary(final Collection<FileAnnotation> annotations, final int newWarnings, final int fixedWarnings) {
+        this.newWarnings = newWarnings;
+        this.fixedWarnings = fixedWarnings;
+        total = annotations.size();
+        priorities = new int[Priority.values().length];
+        modules = new TreeMap<String, Integer>();
+        rules = new TreeMap<String, Integer>();
+        for (FileAnnotation annotation : annotations) {
+            priorities[annotation.getPriority().ordinal()]++;
+            increment(modules, StringUtils.defaultString(annotation.getModuleName()));
+            increment(rules, createRuleKey(annotation.getCategory(), annotation.getType()));
+        }
+    }
+
+    private WarningsSummary(final int total, final int newWarnings, final int fixedWarnings, final int[] priorities,
+            final Map<String, Integer> modules, final Map<String, Integer> rules) {
+        this.total = total;
+        this.newWarnings = newWarnings;
+        this.fixedWarnings = fixedWarnings;
+        this.priorities = priorities;
+        this.modules = modules;
+        this.rules = rules;
+    }
+
+    private static void increment(final Map<String, Integer> counts, final String key) {
+        Integer count = counts.get(key);
+        counts.put(key, count == null ? 1 : count + 1);
+    }
+
+    private static String createRuleKey(final String ruleSet, final String rule) {
+        return StringUtils.defaultString(ruleSet) + RULE_SEPARATOR + StringUtils.defaultString(rule);
+    }
+
+    /**
+     * Returns the total number of warnings.
+     *
+     * @return the number of warnings
+     */
+    @Exported
+    public int getTotal() {
+        return total;
+    }
+
+    /**
+     * Returns the number of new warnings.
+     *
+     * @return the number of new warnings
+     */
+    @Exported
+    public int getNew() {
+        return newWarnings;
+    }
+
+    /**
+     * Returns the number of fixed warnings.
+     *
+     * @return the number of fixed warnings
+     */
+    @Exported
+    public int getFixed() {
+        return fixedWarnings;
+    }
+
+    /**
+     * Returns the number of warnings with the specified priority.
+     *
+     * @param priority
+     *            the priority
+     * @return the number of warnings with the priority
+     */
+    public int getNumberOfWarnings(final Priority priority) {
+        return priorities[priority.ordinal()];
+    }
+
+    /**
+     * Returns the number of warnings with priority high.
+     *
+     * @return the number of warnings with priority high
+     */
+    @Exported
+    public int getHigh() {
+        return getNumberOfWarnings(Priority.HIGH);
+    }
+
+    /**
+     * Returns the number of warnings with priority normal.
+     *
+     * @return the number of warnings with priority normal
+     */
+    @Exported
+    public int getNormal() {
+        return getNumberOfWarnings(Priority.NORMAL);
+    }
+
+    /**
+     * Returns the number of warnings with priority low.
+     *
+     * @return the number of warnings with priority low
+     */
+    @Exported
+    public int getLow() {
+        return getNumberOfWarnings(Priority.LOW);
+    }
+
+    /**
+     * Returns the number of warnings per module.
+     *
+     * @return the number of warnings, keyed by the module name
+     */
+    @Exported
+    public Map<String, Integer> getModules() {
+        return Collections.unmodifiableMap(modules);
+    }
+
+    /**
+     * Returns the number of warnings per rule.
+     *
+     * @return the number of warnings, keyed by rule set and rule separated by a slash
+     */
+    @Exported
+    public Map<String, Integer> getRules() {
+        return Collections.unmodifiableMap(rules);
+    }
+
+    /**
+     * Returns the number of warnings of the specified module.
+     *
+     * @param moduleName
+     *            the name of the module
+     * @return the number of warnings of the module
+     */
+    public int getNumberOfWarningsOfModule(final String moduleName) {
+        Integer count = modules.get(StringUtils.defaultString(moduleName));
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * Returns the number of warnings of the specified rule.
+     *
+     * @param ruleSet
+     *            PMD rule set
+     * @param rule
+     *            PMD rule ID
+     * @return the number of warnings of the rule
+     */
+    public int getNumberOfWarningsOfRule(final String ruleSet, final String rule) {
+        Integer count = rules.get(createRuleKey(ruleSet, rule));
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * Writes this summary to the specified file. The file is replaced atomically, so an interrupted write never
+     * leaves a truncated summary behind.
+     *
+     * @param file
+     *            the file to write
+     * @throws IOException
+     *             if the file could not be written
+     */
+    void write(final File file) throws IOException {
+        File temporary = new File(file.getPath() + ".tmp");
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary)));
+        try {
+            output.writeInt(MAGIC);
+            output.writeByte(VERSION);
+            output.writeInt(total);
+            output.writeInt(newWarnings);
+            output.writeInt(fixedWarnings);
+            for (int count : priorities) {
+                output.writeInt(count);
+            }
+            writeCounts(output, modules);
+            writeCounts(output, rules);
+        }
+        finally {
+            output.close();
+        }
+        if (!temporary.renameTo(file) && !(file.delete() && temporary.renameTo(file))) {
+            temporary.delete();
+            throw new IOException("Can't replace " + file);
+        }
+    }
+
+    private void writeCounts(final DataOutputStream output, final Map<String, Integer> counts) throws IOException {
+        output.writeInt(counts.size());
+        for (Entry<String, Integer> entry : counts.entrySet()) {
+            output.writeUTF(entry.getKey());
+            output.writeInt(entry.getValue());
+        }
+    }
+
+    /**
+     * Reads a summary from the specified file.
+     *
+     * @param file
+     *            the file to read
+     * @return the summary
+     * @throws IOException
+     *             if the file could not be read
+     */
+    static WarningsSummary read(final File file) throws IOException {
+        DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try {
+            if (input.readInt() != MAGIC || input.readByte() != VERSION) {
+                throw new IOException("Unsupported format of PMD summary: " + file);
+            }
+            int total = input.readInt();
+            int newWarnings = input.readInt();
+            int fixedWarnings = input.readInt();
+            int[] priorities = new int[Priority.values().length];
+            for (int i = 0; i < priorities.length; i++) {
+                priorities[i] = input.readInt();
+            }
+            Map<String, Integer> modules = readCounts(input);
+            Map<String, Integer> rules = readCounts(input);
+
+            return new WarningsSummary(total, newWarnings, fixedWarnings, priorities, modules, rules);
+        }
+        finally {
+            input.close();
+        }
+    }
+
+    private static Map<String, Integer> readCounts(final DataInputStream input) throws IOException {
+        Map<String, Integer> counts = new TreeMap<String, Integer>();
+        int size = input.readInt();
+        for (int i = 0; i < size; i++) {
+            counts.put(input.readUTF(), input.readInt());
+        }
+        return counts;
+    }
+}
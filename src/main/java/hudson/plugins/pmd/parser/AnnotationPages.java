@@ -0,0 +1,355 @@
+package hudson.plugins.pmd.parser;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.commons.io.output.CountingOutputStream;
+import org.apache.commons.lang.StringUtils;
+
+import hudson.plugins.analysis.util.model.FileAnnotation;
+import hudson.plugins.analysis.util.model.Priority;
+
+/**
+ * Persists the PMD warnings of a build in pages, one page for each affected file. Each page is stored as
+ * {@link BugTable}; an index at the end of the file contains the module, package and file name, the position and
+ * the number of warnings per priority of each page. Reading a slice of the warnings (e.g. the warnings of a package)
+ * requires only the index and the matching pages, so the costs depend on the size of the slice and not on the total
+ * number of warnings.
+ * <p>
+ * Layout: magic number, version, pages, index, position of the index (8 bytes).
+ * </p>
+ *
+ * @author Ulli Hafner
+ */
+public final class AnnotationPages {
+    private static final int MAGIC = 0x504d4450; // PMDP
+    private static final int VERSION = 1;
+    private static final int TRAILER_SIZE = 8;
+    private static final char SEPARATOR = '\0';
+
+    private final File file;
+    private final List<Page> pages;
+
+    /**
+     * Writes the specified warnings to the specified file. The file is replaced atomically.
+     *
+     * @param file
+     *            the file to write
+     * @param annotations
+     *            the warnings to write
+     * @throws IOException
+     *             if the file could not be written
+     */
+    public static void write(final File file, final Collection<? extends FileAnnotation> annotations)
+            throws IOException {
+        Map<String, List<FileAnnotation>> annotationsByFile = new TreeMap<String, List<FileAnnotation>>();
+        for (FileAnnotation annotation : annotations) {
+            String key = StringUtils.defaultString(annotation.getModuleName()) + SEPARATOR
+                    + StringUtils.defaultString(annotation.getFileName());
+            List<FileAnnotation> annotationsOfFile = annotationsByFile.get(key);
+            if (annotationsOfFile == null) {
+                annotationsOfFile = new ArrayList<FileAnnotation>();
+                annotationsByFile.put(key, annotationsOfFile);
+            }
+            annotationsOfFile.add(annotation);
+        }
+
+        File temporary = new File(file.getPath() + ".tmp");
+        CountingOutputStream counter = new CountingOutputStream(new BufferedOutputStream(new FileOutputStream(temporary)));
+        DataOutputStream output = new DataOutputStream(counter);
+        try {
+            output.writeInt(MAGIC);
+            output.writeByte(VERSION);
+
+            List<Page> pages = new ArrayList<Page>();
+            for (List<FileAnnotation> annotationsOfFile : annotationsByFile.values()) {
+                long offset = counter.getByteCount();
+                BugTable.write(annotationsOfFile, output);
+                output.flush();
+                pages.add(new Page(annotationsOfFile, offset, counter.getByteCount() - offset));
+            }
+
+            long indexOffset = counter.getByteCount();
+            BugTable.writeVarInt(output, pages.size());
+            for (Page page : pages) {
+                page.write(output);
+            }
+            output.writeLong(indexOffset);
+        }
+        finally {
+            output.close();
+        }
+        if (!temporary.renameTo(file) && !(file.delete() && temporary.renameTo(file))) {
+            temporary.delete();
+            throw new IOException("Can't replace " + file);
+        }
+    }
+
+    /**
+     * Reads the index of the pages of the specified file.
+     *
+     * @param file
+     *            the file to read
+     * @return the pages of the file
+     * @throws IOException
+     *             if the file could not be read
+     */
+    public static AnnotationPages open(final File file) throws IOException {
+        RandomAccessFile input = new RandomAccessFile(file, "r");
+        try {
+            if (input.readInt() != MAGIC || input.readByte() != VERSION) {
+                throw new IOException("Unsupported format of PMD warnings pages: " + file);
+            }
+            input.seek(input.length() - TRAILER_SIZE);
+            long indexOffset = input.readLong();
+            byte[] index = new byte[(int)(input.length() - TRAILER_SIZE - indexOffset)];
+            input.seek(indexOffset);
+            input.readFully(index);
+
+            DataInputStream indexInput = new DataInputStream(new ByteArrayInputStream(index));
+            int size = BugTable.readVarInt(indexInput);
+            List<Page> pages = new ArrayList<Page>(size);
+            for (int i = 0; i < size; i++) {
+                pages.add(Page.read(indexInput));
+            }
+            return new AnnotationPages(file, pages);
+        }
+        finally {
+            input.close();
+        }
+    }
+
+    private AnnotationPages(final File file, final List<Page> pages) {
+        this.file = file;
+        this.pages = pages;
+    }
+
+    /**
+     * Returns the number of pages, i.e. the number of files with warnings.
+     *
+     * @return the number of pages
+     */
+    public int size() {
+        return pages.size();
+    }
+
+    /**
+     * Returns the name of the module with the specified hash code. Detail views identify modules, packages and files
+     * by the hash codes of their names.
+     *
+     * @param hashCode
+     *            the hash code of the name
+     * @return the name of the module or {@code null} if there is no such module
+     */
+    public String findModuleName(final int hashCode) {
+        for (Page page : pages) {
+            if (page.moduleName.hashCode() == hashCode) {
+                return page.moduleName;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the name of the package with the specified hash code.
+     *
+     * @param hashCode
+     *            the hash code of the name
+     * @return the name of the package or {@code null} if there is no such package
+     */
+    public String findPackageName(final int hashCode) {
+        for (Page page : pages) {
+            if (page.packageName.hashCode() == hashCode) {
+                return page.packageName;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the name of the file with the specified hash code.
+     *
+     * @param hashCode
+     *            the hash code of the name
+     * @return the name of the file or {@code null} if there is no such file
+     */
+    public String findFileName(final int hashCode) {
+        for (Page page : pages) {
+            if (page.fileName.hashCode() == hashCode) {
+                return page.fileName;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reads the warnings of the specified module.
+     *
+     * @param moduleName
+     *            the name of the module
+     * @return the warnings of the module
+     * @throws IOException
+     *             if the warnings could not be read
+     */
+    public List<FileAnnotation> readModule(final String moduleName) throws IOException {
+        List<Page> selected = new ArrayList<Page>();
+        for (Page page : pages) {
+            if (page.moduleName.equals(StringUtils.defaultString(moduleName))) {
+                selected.add(page);
+            }
+        }
+        return read(selected, null);
+    }
+
+    /**
+     * Reads the warnings of the specified package.
+     *
+     * @param packageName
+     *            the name of the package
+     * @return the warnings of the package
+     * @throws IOException
+     *             if the warnings could not be read
+     */
+    public List<FileAnnotation> readPackage(final String packageName) throws IOException {
+        List<Page> selected = new ArrayList<Page>();
+        for (Page page : pages) {
+            if (page.packageName.equals(StringUtils.defaultString(packageName))) {
+                selected.add(page);
+            }
+        }
+        return read(selected, null);
+    }
+
+    /**
+     * Reads the warnings of the specified file.
+     *
+     * @param fileName
+     *            the name of the file
+     * @return the warnings of the file
+     * @throws IOException
+     *             if the warnings could not be read
+     */
+    public List<FileAnnotation> readFile(final String fileName) throws IOException {
+        List<Page> selected = new ArrayList<Page>();
+        for (Page page : pages) {
+            if (page.fileName.equals(StringUtils.defaultString(fileName))) {
+                selected.add(page);
+            }
+        }
+        return read(selected, null);
+    }
+
+    /**
+     * Reads the warnings with the specified priority.
+     *
+     * @param priority
+     *            the priority
+     * @return the warnings with the priority
+     * @throws IOException
+     *             if the warnings could not be read
+     */
+    public List<FileAnnotation> readPriority(final Priority priority) throws IOException {
+        List<Page> selected = new ArrayList<Page>();
+        for (Page page : pages) {
+            if (page.priorities[priority.ordinal()] > 0) {
+                selected.add(page);
+            }
+        }
+        return read(selected, priority);
+    }
+
+    private List<FileAnnotation> read(final List<Page> selected, final Priority priority) throws IOException {
+        if (selected.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<FileAnnotation> annotations = new ArrayList<FileAnnotation>();
+        RandomAccessFile input = new RandomAccessFile(file, "r");
+        try {
+            for (Page page : selected) {
+                byte[] table = new byte[(int)page.length];
+                input.seek(page.offset);
+                input.readFully(table);
+                for (FileAnnotation annotation : BugTable.read(new DataInputStream(new ByteArrayInputStream(table)))) {
+                    if (priority == null || annotation.getPriority() == priority) {
+                        annotations.add(annotation);
+                    }
+                }
+            }
+        }
+        finally {
+            input.close();
+        }
+        return annotations;
+    }
+
+    /**
+     * The index entry of the warnings of one file.
+     */
+    private static final class Page {
+        private final String moduleName;
+        private final String packageName;
+        private final String fileName;
+        private final long offset;
+        private final long length;
+        private final int[] priorities;
+
+        Page(final List<FileAnnotation> annotations, final long offset, final long length) {
+            FileAnnotation first = annotations.get(0);
+            moduleName = StringUtils.defaultString(first.getModuleName());
+            packageName = StringUtils.defaultString(first.getPackageName());
+            fileName = StringUtils.defaultString(first.getFileName());
+            this.offset = offset;
+            this.length = length;
+            priorities = new int[Priority.values().length];
+            for (FileAnnotation annotation : annotations) {
+                priorities[annotation.getPriority().ordinal()]++;
+            }
+        }
+
+        private Page(final String moduleName, final String packageName, final String fileName,
+                final long offset, final long length, final int[] priorities) {
+            this.moduleName = moduleName;
+            this.packageName = packageName;
+            this.fileName = fileName;
+            this.offset = offset;
+            this.length = length;
+            this.priorities = priorities;
+        }
+
+        void write(final DataOutputStream output) throws IOException {
+            BugTable.writeString(output, moduleName);
+            BugTable.writeString(output, packageName);
+            BugTable.writeString(output, fileName);
+            output.writeLong(offset);
+            output.writeLong(length);
+            for (int count : priorities) {
+                BugTable.writeVarInt(output, count);
+            }
+        }
+
+        static Page read(final DataInputStream input) throws IOException {
+            String moduleName = BugTable.readString(input);
+            String packageName = BugTable.readString(input);
+            String fileName = BugTable.readString(input);
+            long offset = input.readLong();
+            long length = input.readLong();
+            int[] priorities = new int[Priority.values().length];
+            for (int i = 0; i < priorities.length; i++) {
+                priorities[i] = BugTable.readVarInt(input);
+            }
+            return new Page(moduleName, packageName, fileName, offset, length, priorities);
+        }
+    }
+}
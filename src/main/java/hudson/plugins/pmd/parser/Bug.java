@@ -1,5 +1,8 @@
 package hudson.plugins.pmd.parser;
 
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+
 import org.apache.commons.lang.StringUtils;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
@@ -21,6 +24,9 @@ public class Bug extends AbstractAnnotation {
     /** Origin of the annotation. */
     public static final String ORIGIN = "pmd";
 
+    /** The key of this warning if it has been restored from the persisted warnings, {@code null} otherwise. */
+    private final Long restoredKey;
+
     /**
      * Creates a new instance of <code>Bug</code>.
      *
@@ -39,8 +45,32 @@ public class Bug extends AbstractAnnotation {
      */
     public Bug(final Priority priority, final String message, final String category, final String type,
             final int start, final int end) {
+        this(priority, message, category, type, start, end, null);
+    }
+
+    /**
+     * Creates a new instance of <code>Bug</code> that uses the specified key rather than a new one.
+     *
+     * @param priority
+     *            the priority
+     * @param message
+     *            the message of the warning
+     * @param category
+     *            the warning category
+     * @param type
+     *            the identifier of the warning type
+     * @param start
+     *            the first line of the line range
+     * @param end
+     *            the last line of the line range
+     * @param key
+     *            the key of the warning, or {@code null} to use a new key
+     */
+    Bug(final Priority priority, final String message, final String category, final String type,
+            final int start, final int end, final Long key) {
         super(priority, message, start, end, category, type);
 
+        restoredKey = key;
         setOrigin(ORIGIN);
     }
 
@@ -62,11 +92,32 @@ public class Bug extends AbstractAnnotation {
         this(priority, message, category, type, lineNumber, lineNumber);
     }
 
+    @Override
+    public long getKey() {
+        return restoredKey == null ? super.getKey() : restoredKey;
+    }
+
     @Override
     public String getToolTip() {
         return PmdMessages.getInstance().getMessage(getCategory(), getType());
     }
 
+    /**
+     * Returns the URL of the description of the rule of this warning, relative to the URL of the PMD result. The
+     * detail views of a PMD result link to this cacheable description instead of including it for each warning.
+     *
+     * @return the URL of the rule description
+     */
+    public String getRuleDescriptionUrl() {
+        try {
+            return "ruleDescription?ruleSet=" + URLEncoder.encode(StringUtils.defaultString(getCategory()), "UTF-8")
+                    + "&rule=" + URLEncoder.encode(StringUtils.defaultString(getType()), "UTF-8");
+        }
+        catch (UnsupportedEncodingException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+
     /** The tooltip. */
     @SuppressWarnings("PMD")
     @SuppressFBWarnings("SS")
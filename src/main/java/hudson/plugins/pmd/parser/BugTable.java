@@ -0,0 +1,495 @@
+package hudson.plugins.pmd.parser;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import hudson.plugins.analysis.util.model.FileAnnotation;
+import hudson.plugins.analysis.util.model.Priority;
+
+/**
+ * Encodes a collection of PMD warnings in a compact, column oriented binary format. All strings (messages, rules,
+ * rule sets, files, packages, modules and the blame information) are stored once in a string table, the columns
+ * refer to the table using variable length indices. Line numbers are delta encoded with respect to the previous
+ * warning, columns and end lines are stored as variable length integers. The unique keys of the warnings are
+ * stored as well, so that the URLs of the warnings do not change when the warnings are loaded again.
+ * <p>
+ * Layout: version, number of warnings, string table, followed by one column for each property of the warnings.
+ * </p>
+ *
+ * @author Ulli Hafner
+ */
+public final class BugTable {
+    /** Version of the format. */
+    private static final int VERSION = 2;
+    /** First version of the format that contains the keys of the warnings. */
+    private static final int VERSION_WITH_KEYS = 2;
+    /** Index of the {@code null} string in the string table. */
+    private static final int NULL_INDEX = 0;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final char KEY_SEPARATOR = '\0';
+
+    private static final int SEVEN_BITS = 0x7F;
+    private static final int CONTINUATION_BIT = 0x80;
+    private static final int BITS_PER_BYTE = 7;
+
+    /**
+     * Writes the specified warnings to the output.
+     *
+     * @param annotations
+     *            the warnings to write
+     * @param output
+     *            the output to write to
+     * @throws IOException
+     *             if the warnings could not be written
+     */
+    public static void write(final Collection<? extends FileAnnotation> annotations, final DataOutput output)
+            throws IOException {
+        List<FileAnnotation> rows = new ArrayList<FileAnnotation>(annotations);
+        StringTable strings = new StringTable();
+        int[][] stringColumns = new int[StringColumn.values().length][rows.size()];
+        for (int row = 0; row < rows.size(); row++) {
+            for (StringColumn column : StringColumn.values()) {
+                stringColumns[column.ordinal()][row] = strings.indexOf(column.get(rows.get(row)));
+            }
+        }
+
+        writeVarInt(output, VERSION);
+        writeVarInt(output, rows.size());
+        strings.write(output);
+        for (FileAnnotation annotation : rows) {
+            output.writeByte(annotation.getPriority().ordinal());
+        }
+        for (int[] column : stringColumns) {
+            for (int index : column) {
+                writeVarInt(output, index);
+            }
+        }
+        int previousLine = 0;
+        for (FileAnnotation annotation : rows) {
+            int line = annotation.getPrimaryLineNumber();
+            writeSignedVarInt(output, line - previousLine);
+            previousLine = line;
+        }
+        for (FileAnnotation annotation : rows) {
+            writeSignedVarInt(output, getEndLine(annotation) - annotation.getPrimaryLineNumber());
+        }
+        for (FileAnnotation annotation : rows) {
+            writeSignedVarInt(output, annotation.getColumnStart());
+        }
+        for (FileAnnotation annotation : rows) {
+            writeSignedVarInt(output, annotation.getColumnEnd() - annotation.getColumnStart());
+        }
+        for (FileAnnotation annotation : rows) {
+            output.writeInt((int)annotation.getContextHashCode());
+        }
+        for (FileAnnotation annotation : rows) {
+            writeVarInt(output, annotation.getBuild());
+        }
+        long previousKey = 0;
+        for (FileAnnotation annotation : rows) {
+            writeSignedVarLong(output, annotation.getKey() - previousKey);
+            previousKey = annotation.getKey();
+        }
+    }
+
+    /**
+     * Creates a key of the specified warning that contains all properties that are stored in a table. Two warnings
+     * with the same key are restored as equal warnings.
+     *
+     * @param annotation
+     *            the warning
+     * @return the key of the warning
+     */
+    public static String createKey(final FileAnnotation annotation) {
+        StringBuilder key = new StringBuilder();
+        key.append(annotation.getPriority().ordinal());
+        for (StringColumn column : StringColumn.values()) {
+            key.append(KEY_SEPARATOR).append(column.get(annotation));
+        }
+        key.append(KEY_SEPARATOR).append(annotation.getPrimaryLineNumber())
+                .append(KEY_SEPARATOR).append(getEndLine(annotation))
+                .append(KEY_SEPARATOR).append(annotation.getColumnStart())
+                .append(KEY_SEPARATOR).append(annotation.getColumnEnd())
+                .append(KEY_SEPARATOR).append((int)annotation.getContextHashCode())
+                .append(KEY_SEPARATOR).append(annotation.getBuild());
+        return key.toString();
+    }
+
+    private static int getEndLine(final FileAnnotation annotation) {
+        if (annotation.getLineRanges().isEmpty()) {
+            return annotation.getPrimaryLineNumber();
+        }
+        return annotation.getLineRanges().iterator().next().getEnd();
+    }
+
+    /**
+     * Reads the warnings from the input.
+     *
+     * @param input
+     *            the input to read from
+     * @return the warnings
+     * @throws IOException
+     *             if the warnings could not be read
+     */
+    public static List<FileAnnotation> read(final DataInput input) throws IOException {
+        int version = readVarInt(input);
+        if (version < 1 || version > VERSION) {
+            throw new IOException("Unsupported version of PMD warnings table: " + version);
+        }
+        int size = readVarInt(input);
+        String[] strings = StringTable.read(input);
+
+        Priority[] priorities = new Priority[size];
+        for (int row = 0; row < size; row++) {
+            priorities[row] = Priority.values()[input.readByte()];
+        }
+        String[][] stringColumns = new String[StringColumn.values().length][size];
+        for (String[] column : stringColumns) {
+            for (int row = 0; row < size; row++) {
+                column[row] = strings[readVarInt(input)];
+            }
+        }
+        int[] lines = new int[size];
+        int previousLine = 0;
+        for (int row = 0; row < size; row++) {
+            lines[row] = previousLine + readSignedVarInt(input);
+            previousLine = lines[row];
+        }
+        int[] endLines = new int[size];
+        for (int row = 0; row < size; row++) {
+            endLines[row] = lines[row] + readSignedVarInt(input);
+        }
+        int[] columnStarts = new int[size];
+        for (int row = 0; row < size; row++) {
+            columnStarts[row] = readSignedVarInt(input);
+        }
+        int[] columnEnds = new int[size];
+        for (int row = 0; row < size; row++) {
+            columnEnds[row] = columnStarts[row] + readSignedVarInt(input);
+        }
+        int[] contextHashCodes = new int[size];
+        for (int row = 0; row < size; row++) {
+            contextHashCodes[row] = input.readInt();
+        }
+        int[] builds = new int[size];
+        for (int row = 0; row < size; row++) {
+            builds[row] = readVarInt(input);
+        }
+        long[] keys = null;
+        if (version >= VERSION_WITH_KEYS) {
+            keys = new long[size];
+            long previousKey = 0;
+            for (int row = 0; row < size; row++) {
+                keys[row] = previousKey + readSignedVarLong(input);
+                previousKey = keys[row];
+            }
+        }
+
+        List<FileAnnotation> annotations = new ArrayList<FileAnnotation>(size);
+        for (int row = 0; row < size; row++) {
+            Bug bug = new Bug(priorities[row], stringColumns[StringColumn.MESSAGE.ordinal()][row],
+                    stringColumns[StringColumn.CATEGORY.ordinal()][row], stringColumns[StringColumn.TYPE.ordinal()][row],
+                    lines[row], endLines[row], keys == null ? null : keys[row]);
+            for (StringColumn column : StringColumn.values()) {
+                column.set(bug, stringColumns[column.ordinal()][row]);
+            }
+            bug.setColumnPosition(columnStarts[row], columnEnds[row]);
+            bug.setContextHashCode(contextHashCodes[row]);
+            bug.setBuild(builds[row]);
+            annotations.add(bug);
+        }
+        return annotations;
+    }
+
+    /**
+     * Creates a copy of the specified warning that has the specified key. All properties that are stored in a
+     * table are copied.
+     *
+     * @param annotation
+     *            the warning to copy
+     * @param key
+     *            the key of the copy
+     * @return the copy
+     */
+    public static FileAnnotation copy(final FileAnnotation annotation, final long key) {
+        Bug bug = new Bug(annotation.getPriority(), annotation.getMessage(), annotation.getCategory(),
+                annotation.getType(), annotation.getPrimaryLineNumber(), getEndLine(annotation), key);
+        for (StringColumn column : StringColumn.values()) {
+            column.set(bug, column.get(annotation));
+        }
+        bug.setColumnPosition(annotation.getColumnStart(), annotation.getColumnEnd());
+        bug.setContextHashCode((int)annotation.getContextHashCode());
+        bug.setBuild(annotation.getBuild());
+        return bug;
+    }
+
+    /**
+     * Writes a non-negative integer using 1 to 5 bytes.
+     *
+     * @param output
+     *            the output to write to
+     * @param value
+     *            the value to write
+     * @throws IOException
+     *             if the value could not be written
+     */
+    static void writeVarInt(final DataOutput output, final int value) throws IOException {
+        int remaining = value;
+        while ((remaining & ~SEVEN_BITS) != 0) {
+            output.writeByte(remaining & SEVEN_BITS | CONTINUATION_BIT);
+            remaining >>>= BITS_PER_BYTE;
+        }
+        output.writeByte(remaining);
+    }
+
+    /**
+     * Reads an integer that has been written by {@link #writeVarInt(DataOutput, int)}.
+     *
+     * @param input
+     *            the input to read from
+     * @return the value
+     * @throws IOException
+     *             if the value could not be read
+     */
+    static int readVarInt(final DataInput input) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < Integer.SIZE; shift += BITS_PER_BYTE) {
+            int current = input.readUnsignedByte();
+            value |= (current & SEVEN_BITS) << shift;
+            if ((current & CONTINUATION_BIT) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable length integer");
+    }
+
+    /**
+     * Writes a non-null string as UTF-8 encoded bytes, prefixed by the number of bytes.
+     *
+     * @param output
+     *            the output to write to
+     * @param value
+     *            the value to write
+     * @throws IOException
+     *             if the value could not be written
+     */
+    static void writeString(final DataOutput output, final String value) throws IOException {
+        byte[] bytes = value.getBytes(UTF_8);
+        writeVarInt(output, bytes.length);
+        output.write(bytes);
+    }
+
+    /**
+     * Reads a string that has been written by {@link #writeString(DataOutput, String)}.
+     *
+     * @param input
+     *            the input to read from
+     * @return the value
+     * @throws IOException
+     *             if the value could not be read
+     */
+    static String readString(final DataInput input) throws IOException {
+        byte[] bytes = new byte[readVarInt(input)];
+        input.readFully(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    private static void writeSignedVarInt(final DataOutput output, final int value) throws IOException {
+        writeVarInt(output, value << 1 ^ value >> Integer.SIZE - 1);
+    }
+
+    private static int readSignedVarInt(final DataInput input) throws IOException {
+        int value = readVarInt(input);
+        return value >>> 1 ^ -(value & 1);
+    }
+
+    private static void writeSignedVarLong(final DataOutput output, final long value) throws IOException {
+        long remaining = value << 1 ^ value >> Long.SIZE - 1;
+        while ((remaining & ~SEVEN_BITS) != 0) {
+            output.writeByte((int)(remaining & SEVEN_BITS | CONTINUATION_BIT));
+            remaining >>>= BITS_PER_BYTE;
+        }
+        output.writeByte((int)remaining);
+    }
+
+    private static long readSignedVarLong(final DataInput input) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < Long.SIZE; shift += BITS_PER_BYTE) {
+            int current = input.readUnsignedByte();
+            value |= (long)(current & SEVEN_BITS) << shift;
+            if ((current & CONTINUATION_BIT) == 0) {
+                return value >>> 1 ^ -(value & 1);
+            }
+        }
+        throw new IOException("Malformed variable length long");
+    }
+
+    /**
+     * The string properties of a warning that are stored as references into the string table.
+     */
+    private enum StringColumn {
+        MESSAGE {
+            @Override
+            String get(final FileAnnotation annotation) {
+                return annotation.getMessage();
+            }
+
+            @Override
+            void set(final Bug bug, final String value) {
+                // already set in constructor
+            }
+        },
+        CATEGORY {
+            @Override
+            String get(final FileAnnotation annotation) {
+                return annotation.getCategory();
+            }
+
+            @Override
+            void set(final Bug bug, final String value) {
+                // already set in constructor
+            }
+        },
+        TYPE {
+            @Override
+            String get(final FileAnnotation annotation) {
+                return annotation.getType();
+            }
+
+            @Override
+            void set(final Bug bug, final String value) {
+                // already set in constructor
+            }
+        },
+        FILE {
+            @Override
+            String get(final FileAnnotation annotation) {
+                return annotation.getFileName();
+            }
+
+            @Override
+            void set(final Bug bug, final String value) {
+                bug.setFileName(value);
+            }
+        },
+        PACKAGE {
+            @Override
+            String get(final FileAnnotation annotation) {
+                return annotation.getPackageName();
+            }
+
+            @Override
+            void set(final Bug bug, final String value) {
+                bug.setPackageName(value);
+            }
+        },
+        MODULE {
+            @Override
+            String get(final FileAnnotation annotation) {
+                return annotation.getModuleName();
+            }
+
+            @Override
+            void set(final Bug bug, final String value) {
+                bug.setModuleName(value);
+            }
+        },
+        PATH {
+            @Override
+            String get(final FileAnnotation annotation) {
+                return annotation.getPathName();
+            }
+
+            @Override
+            void set(final Bug bug, final String value) {
+                bug.setPathName(value);
+            }
+        },
+        AUTHOR_NAME {
+            @Override
+            String get(final FileAnnotation annotation) {
+                return annotation.getAuthorName();
+            }
+
+            @Override
+            void set(final Bug bug, final String value) {
+                bug.setAuthorName(value);
+            }
+        },
+        AUTHOR_EMAIL {
+            @Override
+            String get(final FileAnnotation annotation) {
+                return annotation.getAuthorEmail();
+            }
+
+            @Override
+            void set(final Bug bug, final String value) {
+                bug.setAuthorEmail(value);
+            }
+        },
+        COMMIT_ID {
+            @Override
+            String get(final FileAnnotation annotation) {
+                return annotation.getCommitId();
+            }
+
+            @Override
+            void set(final Bug bug, final String value) {
+                bug.setCommitId(value);
+            }
+        };
+
+        abstract String get(FileAnnotation annotation);
+
+        abstract void set(Bug bug, String value);
+    }
+
+    /**
+     * Maps each distinct string to its index in the table. Index 0 is reserved for {@code null}.
+     */
+    private static class StringTable {
+        private final Map<String, Integer> indices = new LinkedHashMap<String, Integer>();
+
+        int indexOf(final String value) {
+            if (value == null) {
+                return NULL_INDEX;
+            }
+            Integer index = indices.get(value);
+            if (index == null) {
+                index = indices.size() + 1;
+                indices.put(value, index);
+            }
+            return index;
+        }
+
+        void write(final DataOutput output) throws IOException {
+            writeVarInt(output, indices.size());
+            for (String value : indices.keySet()) {
+                byte[] bytes = value.getBytes(UTF_8);
+                writeVarInt(output, bytes.length);
+                output.write(bytes);
+            }
+        }
+
+        static String[] read(final DataInput input) throws IOException {
+            String[] strings = new String[readVarInt(input) + 1];
+            for (int i = 1; i < strings.length; i++) {
+                byte[] bytes = new byte[readVarInt(input)];
+                input.readFully(bytes);
+                strings[i] = new String(bytes, UTF_8);
+            }
+            return strings;
+        }
+    }
+
+    private BugTable() {
+        // prevents instantiation
+    }
+}
@@ -0,0 +1,132 @@
+package hudson.plugins.pmd.parser;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.codec.binary.Base64;
+
+import com.thoughtworks.xstream.converters.ConversionException;
+import com.thoughtworks.xstream.converters.Converter;
+import com.thoughtworks.xstream.converters.MarshallingContext;
+import com.thoughtworks.xstream.converters.UnmarshallingContext;
+import com.thoughtworks.xstream.converters.collections.ArrayConverter;
+import com.thoughtworks.xstream.io.HierarchicalStreamReader;
+import com.thoughtworks.xstream.io.HierarchicalStreamWriter;
+import com.thoughtworks.xstream.mapper.Mapper;
+
+import hudson.plugins.analysis.util.model.FileAnnotation;
+
+/**
+ * Converts the persisted PMD warnings of a build. The warnings are stored as a gzip compressed {@link BugTable} that
+ * is embedded in Base64 encoding, the element is marked with the attribute {@code format}. Elements without this
+ * attribute have been written by previous releases using one element per warning and are read using the default
+ * array converter of XStream.
+ *
+ * @author Ulli Hafner
+ */
+public class CompactAnnotationsConverter implements Converter {
+    /** Name of the attribute that marks the compact format. */
+    public static final String FORMAT_ATTRIBUTE = "format";
+    /** Value of the format attribute. */
+    public static final String COMPACT_FORMAT = "bug-table";
+
+    private final ArrayConverter fallback;
+
+    /**
+     * Creates a new instance of {@link CompactAnnotationsConverter}.
+     *
+     * @param mapper
+     *            the mapper of the XStream instance
+     */
+    public CompactAnnotationsConverter(final Mapper mapper) {
+        fallback = new ArrayConverter(mapper);
+    }
+
+    @Override
+    public boolean canConvert(final Class type) {
+        return FileAnnotation[].class.equals(type);
+    }
+
+    @Override
+    public void marshal(final Object source, final HierarchicalStreamWriter writer, final MarshallingContext context) {
+        FileAnnotation[] annotations = (FileAnnotation[])source;
+        if (containsOnlyBugs(annotations)) {
+            writer.addAttribute(FORMAT_ATTRIBUTE, COMPACT_FORMAT);
+            writer.setValue(Base64.encodeBase64String(encode(annotations)));
+        }
+        else {
+            fallback.marshal(source, writer, context);
+        }
+    }
+
+    private boolean containsOnlyBugs(final FileAnnotation[] annotations) {
+        for (FileAnnotation annotation : annotations) {
+            if (!(annotation instanceof Bug)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public Object unmarshal(final HierarchicalStreamReader reader, final UnmarshallingContext context) {
+        if (COMPACT_FORMAT.equals(reader.getAttribute(FORMAT_ATTRIBUTE))) {
+            List<FileAnnotation> annotations = decode(Base64.decodeBase64(reader.getValue()));
+            return annotations.toArray(new FileAnnotation[annotations.size()]);
+        }
+        return fallback.unmarshal(reader, context);
+    }
+
+    /**
+     * Encodes the specified warnings as gzip compressed {@link BugTable}.
+     *
+     * @param annotations
+     *            the warnings
+     * @return the compressed table
+     */
+    static byte[] encode(final FileAnnotation[] annotations) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream output = new DataOutputStream(new GZIPOutputStream(bytes));
+            try {
+                BugTable.write(Arrays.asList(annotations), output);
+            }
+            finally {
+                output.close();
+            }
+            return bytes.toByteArray();
+        }
+        catch (IOException exception) {
+            throw new ConversionException("Can't encode PMD warnings", exception);
+        }
+    }
+
+    /**
+     * Decodes the warnings of a gzip compressed {@link BugTable}.
+     *
+     * @param table
+     *            the compressed table
+     * @return the warnings
+     */
+    static List<FileAnnotation> decode(final byte[] table) {
+        try {
+            DataInputStream input = new DataInputStream(new GZIPInputStream(new ByteArrayInputStream(table)));
+            try {
+                return BugTable.read(input);
+            }
+            finally {
+                input.close();
+            }
+        }
+        catch (IOException exception) {
+            throw new ConversionException("Can't decode PMD warnings", exception);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package hudson.plugins.pmd.parser;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.lang.builder.HashCodeBuilder;
+
+/**
+ * Computes the context hash codes of all warnings in a source file while reading the file only once. The computed
+ * values are the same as the values of {@code AbstractAnnotationParser#createContextHashCode}: the hash code of
+ * the lines surrounding the warning, combined with the warning type. If the source file can't be read, then only
+ * the warning type is used.
+ *
+ * @author Ulli Hafner
+ */
+class ContextHashCalculator {
+    /** Number of lines before and after the warning that are part of the context. */
+    private static final int LINES_LOOK_AHEAD = 3;
+    private static final int BUFFER_SIZE = 1000;
+
+    private final Charset charset;
+
+    /**
+     * Creates a new instance of {@link ContextHashCalculator}.
+     *
+     * @param encoding
+     *            the encoding of the source files, if empty or not supported then the platform encoding is used
+     */
+    ContextHashCalculator(final String encoding) {
+        charset = createCharset(encoding);
+    }
+
+    private Charset createCharset(final String encoding) {
+        try {
+            if (StringUtils.isNotBlank(encoding) && Charset.isSupported(encoding)) {
+                return Charset.forName(encoding);
+            }
+        }
+        catch (IllegalCharsetNameException exception) {
+            // ignore and use platform default
+        }
+        return Charset.defaultCharset();
+    }
+
+    /**
+     * Computes and sets the context hash codes of the specified warnings.
+     *
+     * @param fileName
+     *            the name of the source file that contains all warnings
+     * @param bugs
+     *            the warnings of the file
+     */
+    public void computeContextHashCodes(final String fileName, final Collection<Bug> bugs) {
+        if (bugs.isEmpty()) {
+            return;
+        }
+
+        List<String> lines = readLines(fileName, getLastLine(bugs));
+        for (Bug bug : bugs) {
+            HashCodeBuilder builder = new HashCodeBuilder();
+            if (lines != null) {
+                builder.append(createContextHashCode(lines, bug.getPrimaryLineNumber()));
+            }
+            builder.append(bug.getType());
+            bug.setContextHashCode(builder.toHashCode());
+        }
+    }
+
+    private int getLastLine(final Collection<Bug> bugs) {
+        int lastLine = 0;
+        for (Bug bug : bugs) {
+            lastLine = Math.max(lastLine, bug.getPrimaryLineNumber());
+        }
+        return lastLine + LINES_LOOK_AHEAD + 1;
+    }
+
+    /**
+     * Reads all lines of the file up to the specified line.
+     *
+     * @param fileName
+     *            the file to read
+     * @param lastLine
+     *            the last line (zero based) to read
+     * @return the lines or {@code null} if the file could not be read
+     */
+    private List<String> readLines(final String fileName, final int lastLine) {
+        BufferedReader reader = null;
+        try {
+            reader = new BufferedReader(new InputStreamReader(new FileInputStream(fileName), charset));
+            List<String> lines = new ArrayList<String>();
+            for (String line = reader.readLine(); line != null && lines.size() <= lastLine; line = reader.readLine()) {
+                lines.add(line);
+            }
+            return lines;
+        }
+        catch (IOException exception) {
+            return null;
+        }
+        finally {
+            IOUtils.closeQuietly(reader);
+        }
+    }
+
+    private int createContextHashCode(final List<String> lines, final int line) {
+        StringBuilder context = new StringBuilder(BUFFER_SIZE);
+        int first = Math.max(0, line - LINES_LOOK_AHEAD);
+        int last = Math.min(lines.size() - 1, line + LINES_LOOK_AHEAD + 1);
+        for (int i = first; i <= last; i++) {
+            context.append(lines.get(i));
+        }
+        return context.toString().hashCode();
+    }
+}
@@ -0,0 +1,73 @@
+package hudson.plugins.pmd.parser;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import hudson.plugins.analysis.util.model.FileAnnotation;
+
+/**
+ * Computes the new and fixed warnings of a build with respect to the warnings of a reference build. A warning is new
+ * if there is no equal warning and no warning with the same context hash code in the reference build. The hash codes
+ * of the reference warnings are stored in primitive sets, so the difference is computed in linear time and only the
+ * warnings that are not matched by their context hash code require further objects.
+ *
+ * @author Ulli Hafner
+ */
+public final class FingerprintDifferencer {
+    /**
+     * Returns the warnings of the current build that are not part of the reference build.
+     *
+     * @param current
+     *            the warnings of the current build
+     * @param reference
+     *            the warnings of the reference build
+     * @return the new warnings
+     */
+    public static Set<FileAnnotation> getNewAnnotations(final Collection<FileAnnotation> current,
+            final Collection<FileAnnotation> reference) {
+        LongHashSet contextHashCodes = new LongHashSet(reference.size());
+        LongHashSet hashCodes = new LongHashSet(reference.size());
+        for (FileAnnotation annotation : reference) {
+            contextHashCodes.add(annotation.getContextHashCode());
+            hashCodes.add(annotation.hashCode());
+        }
+
+        Set<FileAnnotation> referenceSet = null;
+        Set<FileAnnotation> newAnnotations = new LinkedHashSet<FileAnnotation>();
+        for (FileAnnotation annotation : current) {
+            if (contextHashCodes.contains(annotation.getContextHashCode())) {
+                continue;
+            }
+            if (hashCodes.contains(annotation.hashCode())) {
+                if (referenceSet == null) {
+                    referenceSet = new HashSet<FileAnnotation>(reference);
+                }
+                if (referenceSet.contains(annotation)) {
+                    continue;
+                }
+            }
+            newAnnotations.add(annotation);
+        }
+        return newAnnotations;
+    }
+
+    /**
+     * Returns the warnings of the reference build that are not part of the current build anymore.
+     *
+     * @param current
+     *            the warnings of the current build
+     * @param reference
+     *            the warnings of the reference build
+     * @return the fixed warnings
+     */
+    public static Set<FileAnnotation> getFixedAnnotations(final Collection<FileAnnotation> current,
+            final Collection<FileAnnotation> reference) {
+        return getNewAnnotations(reference, current);
+    }
+
+    private FingerprintDifferencer() {
+        // prevents instantiation
+    }
+}
@@ -0,0 +1,146 @@
+package hudson.plugins.pmd.parser;
+
+/**
+ * A set of primitive {@code long} values that uses open addressing with linear probing. No objects are created when
+ * values are added or looked up.
+ *
+ * @author Ulli Hafner
+ */
+public class LongHashSet {
+    private static final long EMPTY = 0L;
+    private static final int MINIMUM_CAPACITY = 16;
+
+    private long[] table;
+    private int mask;
+    private int size;
+    /** Determines whether the value {@link #EMPTY} is part of the set, it can't be stored in the table. */
+    private boolean containsEmpty;
+
+    /**
+     * Creates a new instance of {@link LongHashSet}.
+     *
+     * @param expectedSize
+     *            the expected number of values
+     */
+    public LongHashSet(final int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    private static int capacityFor(final int expectedSize) {
+        int capacity = MINIMUM_CAPACITY;
+        while (capacity < 2L * expectedSize) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private void allocate(final int capacity) {
+        table = new long[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * Adds the specified value.
+     *
+     * @param value
+     *            the value to add
+     * @return {@code true} if the value has been added, {@code false} if the value is already part of the set
+     */
+    public boolean add(final long value) {
+        if (value == EMPTY) {
+            if (containsEmpty) {
+                return false;
+            }
+            containsEmpty = true;
+            size++;
+            return true;
+        }
+        int index = indexOf(value);
+        if (table[index] == value) {
+            return false;
+        }
+        table[index] = value;
+        size++;
+        if (2 * size > table.length) {
+            rehash();
+        }
+        return true;
+    }
+
+    /**
+     * Returns whether the specified value is part of this set.
+     *
+     * @param value
+     *            the value
+     * @return {@code true} if the value is part of this set
+     */
+    public boolean contains(final long value) {
+        if (value == EMPTY) {
+            return containsEmpty;
+        }
+        return table[indexOf(value)] == value;
+    }
+
+    /**
+     * Returns the number of values in this set.
+     *
+     * @return the number of values
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the values of this set in no particular order.
+     *
+     * @return the values
+     */
+    public long[] toArray() {
+        long[] values = new long[size];
+        int index = 0;
+        if (containsEmpty) {
+            values[index++] = EMPTY;
+        }
+        for (long value : table) {
+            if (value != EMPTY) {
+                values[index++] = value;
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Returns the slot of the specified value: either the slot that contains the value or the empty slot where the
+     * value should be stored.
+     */
+    private int indexOf(final long value) {
+        int index = mix(value) & mask;
+        while (table[index] != EMPTY && table[index] != value) {
+            index = index + 1 & mask;
+        }
+        return index;
+    }
+
+    private void rehash() {
+        long[] old = table;
+        allocate(old.length * 2);
+        for (long value : old) {
+            if (value != EMPTY) {
+                table[indexOf(value)] = value;
+            }
+        }
+    }
+
+    /**
+     * Spreads the bits of the value, so that values that differ only in the high bits are distributed uniformly.
+     */
+    private static int mix(final long value) {
+        long hash = value;
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return (int)hash;
+    }
+}
@@ -1,30 +1,70 @@
 package hudson.plugins.pmd.parser;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
 
+import net.sourceforge.pmd.PMD;
 import net.sourceforge.pmd.Rule;
 import net.sourceforge.pmd.RuleSet;
 import net.sourceforge.pmd.RuleSetFactory;
 import net.sourceforge.pmd.RuleSetNotFoundException;
+import net.sourceforge.pmd.lang.Language;
+import net.sourceforge.pmd.lang.LanguageRegistry;
 
 /**
- * Provides access to rule descriptions and examples.
+ * Provides access to rule descriptions and examples. The rule sets are loaded on demand: initially only the names of
+ * the registered rule sets are read, a rule set is loaded when a message of one of its rules is requested for the
+ * first time. The rendered descriptions of all rules are published as an immutable snapshot that may be persisted
+ * in an index file, which replaces the rule sets after a restart. The snapshot is replaced atomically if the rule
+ * sets are reloaded, e.g. to add custom rule sets.
  *
  * @author Ulli Hafner
  */
 public final class PmdMessages {
+    private static final Logger LOGGER = Logger.getLogger(PmdMessages.class.getName());
+
+    /** Maximum number of characters of all cached tooltips, may be overridden using a system property. */
+    private static final long MAXIMUM_TOOLTIP_WEIGHT = Long.getLong(PmdMessages.class.getName() + ".maximumTooltipCacheSize",
+            2 * 1024 * 1024);
+
     /** Singleton instance. */
     private static final PmdMessages INSTANCE = new PmdMessages();
 
-    /** Available rule sets. */
-    private final Map<String, RuleSet> rules = new HashMap<String, RuleSet>();
+    /** Maps the names of the registered rule sets to the resources that define them. */
+    private Map<String, String> ruleSetFiles;
+    /** Available rule sets that have been loaded so far. */
+    private final Map<String, RuleSet> rules = new ConcurrentHashMap<String, RuleSet>();
+    /** Names of rule sets that could not be loaded. */
+    private final Set<String> failures = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    /** The current descriptions of the rules, replaced atomically when the rule sets are reloaded. */
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<Snapshot>(
+            new Snapshot(new RuleDescriptionIndex()));
+    /** Identifies the rendering of the descriptions in the index file: the versions of PMD and of the plug-in. */
+    private volatile String indexVersion = PMD.VERSION;
 
     /**
      * Returns the singleton instance.
@@ -43,23 +83,121 @@ public final class PmdMessages {
     }
 
     /**
-     * Initializes the rules.
+     * Sets the version of the plug-in. The version is part of the tag of the index file, so that an index that has
+     * been rendered by a different release of the plug-in is not used.
+     *
+     * @param pluginVersion
+     *            the version of the plug-in
+     */
+    public void setPluginVersion(final String pluginVersion) {
+        indexVersion = PMD.VERSION + '/' + pluginVersion;
+    }
+
+    /**
+     * Initializes the rules, i.e. loads all registered rule sets.
      *
      * @return the number of rule sets
      */
     public int initialize() {
-        try {
-            Iterator<RuleSet> ruleSets = new RuleSetFactory().getRegisteredRuleSets();
-            for (Iterator<RuleSet> iterator = ruleSets; iterator.hasNext();) {
-                RuleSet ruleSet = iterator.next();
-                rules.put(ruleSet.getName(), ruleSet);
+        for (String ruleSetName : getRuleSetFiles().keySet()) {
+            getRuleSet(ruleSetName);
+        }
+        return rules.size();
+    }
+
+    /**
+     * Loads all registered rule sets in a background thread with low priority and writes the descriptions of all
+     * rules to the specified index file. Messages that are requested in the meantime are loaded on demand.
+     *
+     * @param indexFile
+     *            the file to write the rule description index to
+     */
+    public void warmUp(final File indexFile) {
+        reload(Collections.<String>emptyList(), indexFile);
+    }
+
+    /**
+     * Reloads the registered and the specified custom rule sets in a background thread with low priority. When all
+     * rule sets have been loaded, the descriptions of the rules are replaced atomically and written to the specified
+     * index file. Until then, the previous descriptions are used.
+     *
+     * @param customRuleSets
+     *            references to additional rule sets, i.e. file names or class path resources
+     * @param indexFile
+     *            the file to write the rule description index to
+     * @return the number of available rule sets after the reload
+     */
+    public Future<Integer> reload(final Collection<String> customRuleSets, final File indexFile) {
+        final List<String> references = new ArrayList<String>(customRuleSets);
+        FutureTask<Integer> task = new FutureTask<Integer>(new Callable<Integer>() {
+            @Override
+            public Integer call() throws RuleSetNotFoundException {
+                RuleDescriptionIndex descriptions = createIndex(references);
+                snapshot.set(new Snapshot(descriptions));
+                try {
+                    descriptions.write(indexFile, indexVersion);
+                }
+                catch (IOException exception) {
+                    LOGGER.log(Level.WARNING, "Can't write PMD rule description index " + indexFile, exception);
+                }
+                return descriptions.size();
+            }
+        });
+        Thread thread = new Thread(task, "PMD rule set loader");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+
+        return task;
+    }
+
+    /**
+     * Reads the descriptions of all rules from the specified index file. The index is used only if it has been
+     * created by the same versions of PMD and of the plug-in.
+     *
+     * @param indexFile
+     *            the file to read the rule description index from
+     * @return {@code true} if the index has been read, {@code false} if the rule sets need to be loaded from PMD
+     */
+    public boolean readIndex(final File indexFile) {
+        RuleDescriptionIndex descriptions = RuleDescriptionIndex.read(indexFile, indexVersion);
+        if (descriptions != null) {
+            snapshot.set(new Snapshot(descriptions));
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Loads all registered rule sets and the specified custom rule sets and renders the descriptions of all rules.
+     *
+     * @param customRuleSets
+     *            references to additional rule sets
+     * @return the descriptions of the rules
+     * @throws RuleSetNotFoundException
+     *             if one of the custom rule sets could not be found
+     */
+    private RuleDescriptionIndex createIndex(final Collection<String> customRuleSets) throws RuleSetNotFoundException {
+        RuleDescriptionIndex descriptions = new RuleDescriptionIndex();
+        RuleSetFactory factory = new RuleSetFactory();
+        for (String fileName : readRegisteredRuleSets().values()) {
+            try {
+                addDescriptions(descriptions, factory.createRuleSet(fileName));
             }
-            return rules.size();
+            catch (RuleSetNotFoundException exception) {
+                LOGGER.log(Level.SEVERE, "Installation problem: can't access PMD messages of " + fileName);
+            }
+        }
+        for (String reference : customRuleSets) {
+            addDescriptions(descriptions, factory.createRuleSet(reference));
         }
-        catch (RuleSetNotFoundException exception) {
-            Logger.getLogger(PmdMessages.class.getName()).log(Level.SEVERE, "Installation problem: can't access PMD messages.");
+        return descriptions;
+    }
+
+    private void addDescriptions(final RuleDescriptionIndex descriptions, final RuleSet ruleSet) {
+        for (Rule rule : ruleSet.getRules()) {
+            descriptions.add(ruleSet.getName(), rule.getName(), createMessage(rule));
         }
-        return 0;
     }
 
     /**
@@ -72,8 +210,22 @@ public final class PmdMessages {
      * @return the message
      */
     public String getMessage(final String ruleSetName, final String ruleName) {
-        if (rules.containsKey(ruleSetName)) {
-            RuleSet ruleSet = rules.get(ruleSetName);
+        Snapshot current = snapshot.get();
+        String message = current.tooltips.get(ruleSetName, ruleName);
+        if (message == null) {
+            message = renderMessage(current.descriptions, ruleSetName, ruleName);
+            current.tooltips.put(ruleSetName, ruleName, message);
+        }
+        return message;
+    }
+
+    private String renderMessage(final RuleDescriptionIndex descriptions, final String ruleSetName,
+            final String ruleName) {
+        if (descriptions.contains(ruleSetName)) {
+            return StringUtils.defaultString(descriptions.get(ruleSetName, ruleName));
+        }
+        RuleSet ruleSet = getRuleSet(ruleSetName);
+        if (ruleSet != null) {
             Rule rule = ruleSet.getRuleByName(ruleName);
             if (rule != null) {
                 return createMessage(rule);
@@ -82,6 +234,162 @@ public final class PmdMessages {
         return StringUtils.EMPTY;
     }
 
+    /**
+     * Returns the number of messages that have been served from the tooltip cache.
+     *
+     * @return the number of cache hits
+     */
+    public long getCacheHits() {
+        return snapshot.get().tooltips.getHits();
+    }
+
+    /**
+     * Returns the number of messages that have been rendered since they were not in the tooltip cache.
+     *
+     * @return the number of cache misses
+     */
+    public long getCacheMisses() {
+        return snapshot.get().tooltips.getMisses();
+    }
+
+    /**
+     * Returns the total number of characters of all cached tooltips.
+     *
+     * @return the size of the tooltip cache
+     */
+    public long getCacheSize() {
+        return snapshot.get().tooltips.getWeight();
+    }
+
+    /**
+     * Returns the rule set with the specified name. The rule set is loaded if it has not been requested before.
+     *
+     * @param ruleSetName
+     *            the name of the rule set
+     * @return the rule set or {@code null} if there is no such rule set
+     */
+    private RuleSet getRuleSet(final String ruleSetName) {
+        if (ruleSetName == null) {
+            return null;
+        }
+        RuleSet ruleSet = rules.get(ruleSetName);
+        if (ruleSet == null && !failures.contains(ruleSetName)) {
+            return loadRuleSet(ruleSetName);
+        }
+        return ruleSet;
+    }
+
+    private synchronized RuleSet loadRuleSet(final String ruleSetName) {
+        RuleSet ruleSet = rules.get(ruleSetName);
+        if (ruleSet != null) {
+            return ruleSet;
+        }
+        String fileName = getRuleSetFiles().get(ruleSetName);
+        if (fileName != null) {
+            try {
+                ruleSet = new RuleSetFactory().createRuleSet(fileName);
+                rules.put(ruleSetName, ruleSet);
+                return ruleSet;
+            }
+            catch (RuleSetNotFoundException exception) {
+                LOGGER.log(Level.SEVERE, "Installation problem: can't access PMD messages of " + fileName);
+            }
+        }
+        failures.add(ruleSetName);
+        return null;
+    }
+
+    private synchronized Map<String, String> getRuleSetFiles() {
+        if (ruleSetFiles == null) {
+            ruleSetFiles = readRegisteredRuleSets();
+        }
+        return ruleSetFiles;
+    }
+
+    /**
+     * Reads the names of all registered rule sets. Only the root elements of the rule set definitions are parsed.
+     *
+     * @return a mapping of rule set names to the resources that define the rule sets
+     */
+    private Map<String, String> readRegisteredRuleSets() {
+        Map<String, String> files = new HashMap<String, String>();
+        ClassLoader classLoader = RuleSetFactory.class.getClassLoader();
+        for (Language language : LanguageRegistry.findWithRuleSupport()) {
+            String properties = "rulesets/" + language.getTerseName() + "/rulesets.properties";
+            for (String fileName : readRuleSetFileNames(classLoader, properties)) {
+                String name = readRuleSetName(classLoader, fileName);
+                if (name != null) {
+                    files.put(name, fileName);
+                }
+            }
+        }
+        return files;
+    }
+
+    private String[] readRuleSetFileNames(final ClassLoader classLoader, final String properties) {
+        InputStream stream = classLoader.getResourceAsStream(properties);
+        if (stream == null) {
+            return new String[0];
+        }
+        try {
+            Properties registered = new Properties();
+            registered.load(stream);
+            return StringUtils.split(registered.getProperty("rulesets.filenames", StringUtils.EMPTY), ", ");
+        }
+        catch (IOException exception) {
+            LOGGER.log(Level.SEVERE, "Installation problem: can't access PMD rule sets in " + properties, exception);
+            return new String[0];
+        }
+        finally {
+            IOUtils.closeQuietly(stream);
+        }
+    }
+
+    private String readRuleSetName(final ClassLoader classLoader, final String fileName) {
+        InputStream stream = classLoader.getResourceAsStream(fileName);
+        if (stream == null) {
+            LOGGER.log(Level.SEVERE, "Installation problem: can't access PMD rule set " + fileName);
+            return null;
+        }
+        try {
+            XMLInputFactory factory = XMLInputFactory.newInstance();
+            factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+            XMLStreamReader reader = factory.createXMLStreamReader(stream);
+            try {
+                while (reader.hasNext()) {
+                    if (reader.next() == XMLStreamConstants.START_ELEMENT) {
+                        return reader.getAttributeValue(null, "name");
+                    }
+                }
+                return null;
+            }
+            finally {
+                reader.close();
+            }
+        }
+        catch (XMLStreamException exception) {
+            LOGGER.log(Level.SEVERE, "Installation problem: can't read PMD rule set " + fileName, exception);
+            return null;
+        }
+        finally {
+            IOUtils.closeQuietly(stream);
+        }
+    }
+
+    /**
+     * The descriptions of the rules at a given time. The descriptions are not modified after the snapshot has been
+     * published, so readers need no locks. The tooltip cache is part of the snapshot so that a reload discards all
+     * outdated tooltips.
+     */
+    private static final class Snapshot {
+        private final RuleDescriptionIndex descriptions;
+        private final TooltipCache tooltips = new TooltipCache(MAXIMUM_TOOLTIP_WEIGHT);
+
+        Snapshot(final RuleDescriptionIndex descriptions) {
+            this.descriptions = descriptions;
+        }
+    }
+
     /**
      * Creates the message string to be shown for the specified rule.
      *
@@ -97,4 +405,3 @@ public final class PmdMessages {
         return rule.getDescription();
     }
 }
-
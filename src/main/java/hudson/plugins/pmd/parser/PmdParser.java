@@ -1,12 +1,25 @@
 package hudson.plugins.pmd.parser;
 
+import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
 
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
+import org.apache.commons.lang.math.NumberUtils;
 import org.xml.sax.SAXException;
 
 import hudson.plugins.analysis.core.AbstractAnnotationParser;
@@ -15,7 +28,9 @@ import hudson.plugins.analysis.util.model.FileAnnotation;
 import hudson.plugins.analysis.util.model.Priority;
 
 /**
- * A parser for PMD XML files.
+ * A parser for PMD XML files. The parser either builds the complete {@link Pmd} object graph using a digester or
+ * streams the XML events and creates each {@link Bug} as soon as the corresponding violation has been read.
+ * Reports that are compressed with gzip (e.g. {@code pmd.xml.gz}) are decompressed while they are parsed.
  *
  * @author Ulli Hafner
  */
@@ -28,11 +43,40 @@ public class PmdParser extends AbstractAnnotationParser {
     /** PMD priorities greater than this value are mapped to {@link Priority#LOW}. */
     private static final int PMD_PRIORITY_MAPPED_TO_LOW_PRIORITY = 4;
 
+    private static final String PMD_ELEMENT = "pmd";
+    private static final String FILE_ELEMENT = "file";
+    private static final String VIOLATION_ELEMENT = "violation";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int BYTE_MASK = 0xFF;
+
+    private static final int PMD_DEPTH = 1;
+    private static final int FILE_DEPTH = 2;
+    private static final int VIOLATION_DEPTH = 3;
+
+    /** The encoding of the source files, used to compute the context hash codes. */
+    private final String sourceEncoding;
+    /** Determines whether to use the streaming parser rather than the digester. */
+    private final boolean useStreamingParser;
+    /** Determines whether to reuse the annotations of reports that have been parsed before. */
+    private final boolean useReportCache;
+    /** Filters the violations before they are converted to warnings. */
+    private final ViolationFilter filter;
+
+    /**
+     * Canonical instances of the names that are shared by the warnings of all reports parsed by this parser. Only
+     * the low-cardinality properties are pooled: rule sets, rules, packages, modules and files. Messages often
+     * contain the names of variables or methods, so pooling them would grow the pool with almost every warning.
+     */
+    private final StringPool names = new StringPool();
+    private final AtomicInteger cacheHits = new AtomicInteger();
+    private final AtomicInteger cacheMisses = new AtomicInteger();
+
     /**
      * Creates a new instance of {@link PmdParser}.
      */
     public PmdParser() {
-        super(StringUtils.EMPTY);
+        this(StringUtils.EMPTY);
     }
 
     /**
@@ -42,11 +86,193 @@ public class PmdParser extends AbstractAnnotationParser {
      *            the default encoding to be used when reading and parsing files
      */
     public PmdParser(final String defaultEncoding) {
+        this(defaultEncoding, false);
+    }
+
+    /**
+     * Creates a new instance of {@link PmdParser}.
+     *
+     * @param defaultEncoding
+     *            the default encoding to be used when reading and parsing files
+     * @param useStreamingParser
+     *            determines whether to stream the XML events (and create each warning immediately) rather than
+     *            building the complete PMD object graph before the conversion
+     */
+    public PmdParser(final String defaultEncoding, final boolean useStreamingParser) {
+        this(defaultEncoding, useStreamingParser, false);
+    }
+
+    /**
+     * Creates a new instance of {@link PmdParser}.
+     *
+     * @param defaultEncoding
+     *            the default encoding to be used when reading and parsing files
+     * @param useStreamingParser
+     *            determines whether to stream the XML events (and create each warning immediately) rather than
+     *            building the complete PMD object graph before the conversion
+     * @param useReportCache
+     *            determines whether to reuse the annotations of report files that have the same content digest and
+     *            module name as a report that has been parsed before, see {@link ReportCache}
+     */
+    public PmdParser(final String defaultEncoding, final boolean useStreamingParser, final boolean useReportCache) {
+        this(defaultEncoding, useStreamingParser, useReportCache, new ViolationFilter());
+    }
+
+    /**
+     * Creates a new instance of {@link PmdParser}.
+     *
+     * @param defaultEncoding
+     *            the default encoding to be used when reading and parsing files
+     * @param useStreamingParser
+     *            determines whether to stream the XML events (and create each warning immediately) rather than
+     *            building the complete PMD object graph before the conversion
+     * @param useReportCache
+     *            determines whether to reuse the annotations of report files that have the same content digest and
+     *            module name as a report that has been parsed before, see {@link ReportCache}
+     * @param filter
+     *            the filter for the violations: rejected violations are not converted to warnings
+     */
+    public PmdParser(final String defaultEncoding, final boolean useStreamingParser, final boolean useReportCache,
+            final ViolationFilter filter) {
         super(defaultEncoding);
+
+        sourceEncoding = defaultEncoding;
+        this.useStreamingParser = useStreamingParser;
+        this.useReportCache = useReportCache;
+        this.filter = filter;
+    }
+
+    /**
+     * Returns whether the annotations of reports that have been parsed before are reused.
+     *
+     * @return {@code true} if the report cache is used, {@code false} otherwise
+     */
+    public boolean isUsingReportCache() {
+        return useReportCache;
+    }
+
+    /**
+     * Returns the number of report files that have been found in the {@link ReportCache}.
+     *
+     * @return the number of cache hits
+     */
+    public int getCacheHits() {
+        return cacheHits.get();
+    }
+
+    /**
+     * Returns the number of report files that have not been found in the {@link ReportCache}.
+     *
+     * @return the number of cache misses
+     */
+    public int getCacheMisses() {
+        return cacheMisses.get();
+    }
+
+    @Override
+    public Collection<FileAnnotation> parse(final java.io.File file, final String moduleName) throws InvocationTargetException {
+        if (!useReportCache) {
+            return super.parse(file, moduleName);
+        }
+
+        String key;
+        try {
+            key = ReportCache.createKey(file, moduleName + '|' + filter + '|' + sourceEncoding);
+        }
+        catch (IOException exception) {
+            throw new InvocationTargetException(exception);
+        }
+        Collection<FileAnnotation> annotations = ReportCache.getInstance().get(key);
+        if (annotations == null) {
+            cacheMisses.incrementAndGet();
+            annotations = super.parse(file, moduleName);
+            ReportCache.getInstance().put(key, annotations);
+        }
+        else {
+            cacheHits.incrementAndGet();
+            computeContextHashCodes(annotations);
+        }
+        return annotations;
+    }
+
+    /**
+     * Computes the context hash codes of cached warnings again: the report did not change, but the context hash
+     * codes depend on the source files that might have been changed in the meantime.
+     *
+     * @param annotations
+     *            the cached warnings
+     */
+    private void computeContextHashCodes(final Collection<FileAnnotation> annotations) {
+        Map<String, List<Bug>> bugsByFile = new LinkedHashMap<String, List<Bug>>();
+        for (FileAnnotation annotation : annotations) {
+            List<Bug> bugsOfFile = bugsByFile.get(annotation.getFileName());
+            if (bugsOfFile == null) {
+                bugsOfFile = new ArrayList<Bug>();
+                bugsByFile.put(annotation.getFileName(), bugsOfFile);
+            }
+            bugsOfFile.add((Bug)annotation);
+        }
+        ContextHashCalculator calculator = new ContextHashCalculator(sourceEncoding);
+        for (Map.Entry<String, List<Bug>> bugsOfFile : bugsByFile.entrySet()) {
+            calculator.computeContextHashCodes(bugsOfFile.getKey(), bugsOfFile.getValue());
+        }
     }
 
     @Override
     public Collection<FileAnnotation> parse(final InputStream file, final String moduleName) throws InvocationTargetException {
+        InputStream input = null;
+        try {
+            input = decompress(file);
+            if (useStreamingParser) {
+                return parseStream(input, moduleName);
+            }
+            return parseTree(input, moduleName);
+        }
+        catch (IOException exception) {
+            throw new InvocationTargetException(exception);
+        }
+        finally {
+            IOUtils.closeQuietly(input);
+        }
+    }
+
+    /**
+     * Returns a stream that provides the XML content of the specified PMD report. If the report is compressed with
+     * gzip, then the returned stream decompresses the report while it is read.
+     *
+     * @param file
+     *            the PMD report, either plain XML or gzip compressed XML
+     * @return the stream with the XML content
+     * @throws IOException
+     *             if the report could not be read
+     */
+    private InputStream decompress(final InputStream file) throws IOException {
+        BufferedInputStream input = new BufferedInputStream(file, BUFFER_SIZE);
+        input.mark(2);
+        int first = input.read();
+        int second = input.read();
+        input.reset();
+
+        if (first == (GZIPInputStream.GZIP_MAGIC & BYTE_MASK) && second == GZIPInputStream.GZIP_MAGIC >> Byte.SIZE) {
+            return new GZIPInputStream(input, BUFFER_SIZE);
+        }
+        return input;
+    }
+
+    private Collection<FileAnnotation> parseTree(final InputStream file, final String moduleName) throws InvocationTargetException {
+        return convert(readTree(file), moduleName);
+    }
+
+    /**
+     * Reads the complete PMD XML file into the internal {@link Pmd} object graph.
+     *
+     * @param file
+     *            the PMD XML file
+     * @return the internal PMD object graph
+     * @throws InvocationTargetException
+     *             if the file could not be parsed
+     */
+    Pmd readTree(final InputStream file) throws InvocationTargetException {
         try {
             SecureDigester digester = new SecureDigester(PmdParser.class);
 
@@ -70,7 +296,7 @@ public class PmdParser extends AbstractAnnotationParser {
                 throw new SAXException("Input stream is not a PMD file.");
             }
 
-            return convert(module, moduleName);
+            return module;
         }
         catch (IOException exception) {
             throw new InvocationTargetException(exception);
@@ -81,7 +307,126 @@ public class PmdParser extends AbstractAnnotationParser {
     }
 
     /**
-     * Converts the internal structure to the annotations API.
+     * Parses the PMD XML file using a StAX reader. Each violation is converted to a {@link Bug} as soon as it has
+     * been read, so the internal {@link Pmd} object graph is never created.
+     *
+     * @param file
+     *            the PMD XML file
+     * @param moduleName
+     *            name of the maven module
+     * @return the annotations
+     * @throws InvocationTargetException
+     *             if the file could not be parsed
+     */
+    private Collection<FileAnnotation> parseStream(final InputStream file, final String moduleName) throws InvocationTargetException {
+        XMLStreamReader reader = null;
+        try {
+            reader = createStreamReader(file);
+
+            ContextHashCalculator calculator = new ContextHashCalculator(sourceEncoding);
+            ArrayList<FileAnnotation> annotations = new ArrayList<FileAnnotation>();
+            List<Bug> bugsOfFile = new ArrayList<Bug>();
+            String fileName = null;
+            int depth = 0;
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    depth++;
+                    String element = reader.getLocalName();
+                    if (depth == PMD_DEPTH && !PMD_ELEMENT.equals(element)) {
+                        throw new XMLStreamException("Input stream is not a PMD file.");
+                    }
+                    if (depth == FILE_DEPTH && FILE_ELEMENT.equals(element)) {
+                        fileName = reader.getAttributeValue(null, "name");
+                        if (!filter.acceptsFile(fileName)) {
+                            fileName = null;
+                        }
+                    }
+                    else if (depth == VIOLATION_DEPTH && VIOLATION_ELEMENT.equals(element) && fileName != null) {
+                        Violation violation = readViolation(reader);
+                        if (filter.accepts(violation)) {
+                            bugsOfFile.add(createBug(violation, fileName, moduleName));
+                        }
+                        depth--; // the violation reader consumes the end element
+                    }
+                }
+                else if (event == XMLStreamConstants.END_ELEMENT) {
+                    if (depth == FILE_DEPTH) {
+                        calculator.computeContextHashCodes(fileName, bugsOfFile);
+                        annotations.addAll(bugsOfFile);
+                        bugsOfFile.clear();
+                        fileName = null;
+                    }
+                    depth--;
+                }
+            }
+            return annotations;
+        }
+        catch (XMLStreamException exception) {
+            throw new InvocationTargetException(exception);
+        }
+        finally {
+            closeQuietly(reader);
+        }
+    }
+
+    /**
+     * Creates a StAX reader that neither resolves DTDs nor external entities.
+     *
+     * @param file
+     *            the PMD XML file
+     * @return the reader
+     * @throws XMLStreamException
+     *             if the reader could not be created
+     */
+    private XMLStreamReader createStreamReader(final InputStream file) throws XMLStreamException {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+
+        return factory.createXMLStreamReader(file);
+    }
+
+    /**
+     * Reads the violation at the current position of the specified reader. Afterwards, the reader is positioned at
+     * the end element of the violation.
+     *
+     * @param reader
+     *            the reader positioned at the start element of a violation
+     * @return the violation
+     * @throws XMLStreamException
+     *             if the violation could not be read
+     */
+    private Violation readViolation(final XMLStreamReader reader) throws XMLStreamException {
+        Violation violation = new Violation();
+        violation.setRule(reader.getAttributeValue(null, "rule"));
+        violation.setRuleset(reader.getAttributeValue(null, "ruleset"));
+        violation.setPackage(reader.getAttributeValue(null, "package"));
+        violation.setExternalInfoUrl(reader.getAttributeValue(null, "externalInfoUrl"));
+        violation.setPriority(NumberUtils.toInt(reader.getAttributeValue(null, "priority")));
+        violation.setBeginline(NumberUtils.toInt(reader.getAttributeValue(null, "beginline")));
+        violation.setEndline(NumberUtils.toInt(reader.getAttributeValue(null, "endline")));
+        violation.setBegincolumn(NumberUtils.toInt(reader.getAttributeValue(null, "begincolumn")));
+        violation.setEndcolumn(NumberUtils.toInt(reader.getAttributeValue(null, "endcolumn")));
+        violation.setMessage(StringUtils.trim(reader.getElementText()));
+
+        return violation;
+    }
+
+    private void closeQuietly(final XMLStreamReader reader) {
+        if (reader != null) {
+            try {
+                reader.close();
+            }
+            catch (XMLStreamException exception) {
+                // ignore
+            }
+        }
+    }
+
+    /**
+     * Converts the internal structure to the annotations API. Violations that are rejected by the filter are
+     * skipped. Each source file is read only once to compute the context hash codes of its warnings.
      *
      * @param collection
      *            the internal maven module
@@ -89,35 +434,61 @@ public class PmdParser extends AbstractAnnotationParser {
      *            name of the maven module
      * @return a maven module of the annotations API
      */
-    private Collection<FileAnnotation> convert(final Pmd collection, final String moduleName) {
+    Collection<FileAnnotation> convert(final Pmd collection, final String moduleName) {
+        ContextHashCalculator calculator = new ContextHashCalculator(sourceEncoding);
         ArrayList<FileAnnotation> annotations = new ArrayList<FileAnnotation>();
 
         for (hudson.plugins.pmd.parser.File file : collection.getFiles()) {
+            if (!filter.acceptsFile(file.getName())) {
+                continue;
+            }
+            List<Bug> bugsOfFile = new ArrayList<Bug>();
             for (Violation warning : file.getViolations()) {
-                Priority priority;
-                if (warning.getPriority() < PMD_PRIORITY_MAPPED_TO_HIGH_PRIORITY) {
-                    priority = Priority.HIGH;
-                }
-                else if (warning.getPriority() >  PMD_PRIORITY_MAPPED_TO_LOW_PRIORITY) {
-                    priority = Priority.LOW;
+                if (filter.accepts(warning)) {
+                    bugsOfFile.add(createBug(warning, file.getName(), moduleName));
                 }
-                else {
-                    priority = Priority.NORMAL;
-                }
-                Bug bug = new Bug(priority, createMessage(warning), warning.getRuleset(), warning.getRule(),
-                            warning.getBeginline(), warning.getEndline());
-                bug.setPackageName(warning.getPackage());
-                bug.setModuleName(moduleName);
-                bug.setFileName(file.getName());
-                bug.setColumnPosition(warning.getBegincolumn(), warning.getEndcolumn());
-                bug.setContextHashCode(createContextHashCode(file.getName(), warning.getBeginline(), warning.getRule()));
-
-                annotations.add(bug);
             }
+            calculator.computeContextHashCodes(file.getName(), bugsOfFile);
+            annotations.addAll(bugsOfFile);
         }
         return annotations;
     }
 
+    /**
+     * Creates a new warning for the specified violation. All names of the warning are replaced with their canonical
+     * instances, the message is not pooled since it is unique in most cases. The context hash code is not set, it is
+     * computed for all warnings of a file at once using a {@link ContextHashCalculator}.
+     *
+     * @param warning
+     *            the violation
+     * @param fileName
+     *            the name of the file that contains the violation
+     * @param moduleName
+     *            name of the maven module
+     * @return the warning
+     */
+    private Bug createBug(final Violation warning, final String fileName, final String moduleName) {
+        Priority priority;
+        if (warning.getPriority() < PMD_PRIORITY_MAPPED_TO_HIGH_PRIORITY) {
+            priority = Priority.HIGH;
+        }
+        else if (warning.getPriority() >  PMD_PRIORITY_MAPPED_TO_LOW_PRIORITY) {
+            priority = Priority.LOW;
+        }
+        else {
+            priority = Priority.NORMAL;
+        }
+        Bug bug = new Bug(priority, createMessage(warning),
+                names.intern(warning.getRuleset()), names.intern(warning.getRule()),
+                warning.getBeginline(), warning.getEndline());
+        bug.setPackageName(names.intern(warning.getPackage()));
+        bug.setModuleName(names.intern(moduleName));
+        bug.setFileName(names.intern(fileName));
+        bug.setColumnPosition(warning.getBegincolumn(), warning.getEndcolumn());
+
+        return bug;
+    }
+
     private String createMessage(final Violation warning) {
         String original = warning.getMessage();
         if (StringUtils.endsWith(original, ".")) {
@@ -128,4 +499,3 @@ public class PmdParser extends AbstractAnnotationParser {
         }
     }
 }
-
@@ -0,0 +1,124 @@
+package hudson.plugins.pmd.parser;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import hudson.plugins.analysis.util.model.FileAnnotation;
+
+/**
+ * The new and fixed warnings of a build with respect to the {@link ReferenceFingerprints} of a reference build,
+ * computed on the agent. Only the context hash codes of the new and fixed warnings are stored, the warnings
+ * themselves are selected on the controller from the warnings of the build and of the reference build. Sending
+ * the warnings of the reference build to the agent instead would transfer far more data than loading them on the
+ * controller, where they are cached anyway. Selected warnings that are equal to a warning of the other build are
+ * removed using the {@link FingerprintDifferencer}, so the result is the same as if the warnings were compared on
+ * the controller.
+ *
+ * @author Ulli Hafner
+ */
+public class ReferenceDifference implements Serializable {
+    private static final long serialVersionUID = 2923566711424432416L;
+
+    private final long[] newContextHashCodes;
+    private final long[] fixedContextHashCodes;
+    /** Determines whether a new warning might be equal to a warning of the reference build. */
+    private final boolean isReferenceRequired;
+
+    /**
+     * Creates a new instance of {@link ReferenceDifference}.
+     *
+     * @param newContextHashCodes
+     *            the context hash codes of the new warnings
+     * @param fixedContextHashCodes
+     *            the context hash codes of the fixed warnings
+     * @param isReferenceRequired
+     *            determines whether a new warning might be equal to a warning of the reference build
+     */
+    ReferenceDifference(final long[] newContextHashCodes, final long[] fixedContextHashCodes,
+            final boolean isReferenceRequired) {
+        this.newContextHashCodes = newContextHashCodes;
+        this.fixedContextHashCodes = fixedContextHashCodes;
+        this.isReferenceRequired = isReferenceRequired;
+    }
+
+    /**
+     * Returns whether there are new warnings.
+     *
+     * @return {@code true} if there are new warnings
+     */
+    public boolean hasNewWarnings() {
+        return newContextHashCodes.length > 0;
+    }
+
+    /**
+     * Returns whether there are fixed warnings. If not, then the warnings of the reference build do not need to be
+     * loaded.
+     *
+     * @return {@code true} if there are fixed warnings
+     */
+    public boolean hasFixedWarnings() {
+        return fixedContextHashCodes.length > 0;
+    }
+
+    /**
+     * Returns whether the warnings of the reference build are required to compute the new warnings. If not, then no
+     * new warning has an equal warning in the reference build.
+     *
+     * @return {@code true} if the warnings of the reference build are required
+     */
+    public boolean isReferenceRequiredForNewWarnings() {
+        return isReferenceRequired;
+    }
+
+    /**
+     * Returns the new warnings.
+     *
+     * @param current
+     *            the warnings of the current build
+     * @param reference
+     *            the warnings of the reference build, may be empty if
+     *            {@link #isReferenceRequiredForNewWarnings()} returns {@code false}
+     * @return the new warnings
+     */
+    public Set<FileAnnotation> getNewAnnotations(final Collection<FileAnnotation> current,
+            final Collection<FileAnnotation> reference) {
+        Set<FileAnnotation> newAnnotations = select(current, newContextHashCodes);
+        if (isReferenceRequired) {
+            return FingerprintDifferencer.getNewAnnotations(newAnnotations, reference);
+        }
+        return newAnnotations;
+    }
+
+    /**
+     * Returns the fixed warnings.
+     *
+     * @param current
+     *            the warnings of the current build
+     * @param reference
+     *            the warnings of the reference build
+     * @return the fixed warnings
+     */
+    public Set<FileAnnotation> getFixedAnnotations(final Collection<FileAnnotation> current,
+            final Collection<FileAnnotation> reference) {
+        return FingerprintDifferencer.getFixedAnnotations(current, select(reference, fixedContextHashCodes));
+    }
+
+    private Set<FileAnnotation> select(final Collection<FileAnnotation> annotations, final long[] contextHashCodes) {
+        if (contextHashCodes.length == 0) {
+            return new LinkedHashSet<FileAnnotation>();
+        }
+        LongHashSet selected = new LongHashSet(contextHashCodes.length);
+        for (long contextHashCode : contextHashCodes) {
+            selected.add(contextHashCode);
+        }
+        Set<FileAnnotation> result = new LinkedHashSet<FileAnnotation>();
+        for (FileAnnotation annotation : annotations) {
+            if (selected.contains(annotation.getContextHashCode())) {
+                result.add(annotation);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,200 @@
+package hudson.plugins.pmd.parser;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.Collection;
+
+import org.apache.commons.lang.StringUtils;
+
+import hudson.plugins.analysis.util.model.FileAnnotation;
+
+/**
+ * The fingerprints of the warnings of a reference build: the distinct context hash codes and the distinct warning
+ * hash codes (see {@link #getWarningHashCode(FileAnnotation)}) of the warnings. The fingerprints are small enough to
+ * be sent to the agent, so that the new and fixed warnings of a build can be computed right after parsing (see
+ * {@link #compare(Collection)}).
+ * <p>
+ * Layout of the file: magic number, version, number of context hash codes, context hash codes, number of warning
+ * hash codes, warning hash codes.
+ * </p>
+ *
+ * @author Ulli Hafner
+ */
+public class ReferenceFingerprints implements Serializable {
+    private static final long serialVersionUID = -6044435180406950476L;
+
+    private static final int MAGIC = 0x504d4446; // PMDF
+    private static final int VERSION = 2;
+    private static final int PRIME = 31;
+
+    private final long[] contextHashCodes;
+    private final long[] warningHashCodes;
+
+    /**
+     * Creates the fingerprints of the specified warnings.
+     *
+     * @param annotations
+     *            the warnings of the reference build
+     * @return the fingerprints
+     */
+    public static ReferenceFingerprints create(final Collection<FileAnnotation> annotations) {
+        LongHashSet contextHashCodes = new LongHashSet(annotations.size());
+        LongHashSet warningHashCodes = new LongHashSet(annotations.size());
+        for (FileAnnotation annotation : annotations) {
+            contextHashCodes.add(annotation.getContextHashCode());
+            warningHashCodes.add(getWarningHashCode(annotation));
+        }
+        return new ReferenceFingerprints(contextHashCodes.toArray(), warningHashCodes.toArray());
+    }
+
+    /**
+     * Returns a hash code of the specified warning that is the same for equal warnings. In contrast to
+     * {@link Object#hashCode()} the hash code does not depend on the JVM: the fingerprints are created on the
+     * controller, persisted and compared on the agent. Only properties that are part of {@link Object#equals(Object)}
+     * are used.
+     *
+     * @param annotation
+     *            the warning
+     * @return the hash code
+     */
+    static long getWarningHashCode(final FileAnnotation annotation) {
+        long hashCode = annotation.getPrimaryLineNumber();
+        hashCode = PRIME * hashCode + StringUtils.defaultString(annotation.getFileName()).hashCode();
+        hashCode = PRIME * hashCode + StringUtils.defaultString(annotation.getCategory()).hashCode();
+        hashCode = PRIME * hashCode + StringUtils.defaultString(annotation.getType()).hashCode();
+        return hashCode;
+    }
+
+    private ReferenceFingerprints(final long[] contextHashCodes, final long[] warningHashCodes) {
+        this.contextHashCodes = contextHashCodes;
+        this.warningHashCodes = warningHashCodes;
+    }
+
+    /**
+     * Returns the number of fingerprints.
+     *
+     * @return the number of fingerprints
+     */
+    public int size() {
+        return contextHashCodes.length;
+    }
+
+    /**
+     * Compares the specified warnings of the current build with these fingerprints. A warning is new if its context
+     * hash code is not part of the fingerprints, a fingerprint is fixed if no warning of the current build has this
+     * context hash code. Like the {@link FingerprintDifferencer}, warnings that are equal to a warning of the other
+     * build are neither new nor fixed: since the agent has no warnings of the reference build, these warnings are
+     * removed on the controller (see {@link ReferenceDifference}). The warning hash codes tell whether a new warning
+     * may have such an equal warning in the reference build at all.
+     *
+     * @param current
+     *            the warnings of the current build
+     * @return the difference
+     */
+    public ReferenceDifference compare(final Collection<FileAnnotation> current) {
+        LongHashSet reference = toSet(contextHashCodes);
+        LongHashSet referenceWarnings = toSet(warningHashCodes);
+
+        LongHashSet currentHashCodes = new LongHashSet(current.size());
+        LongHashSet newHashCodes = new LongHashSet(0);
+        boolean isReferenceRequired = false;
+        for (FileAnnotation annotation : current) {
+            long contextHashCode = annotation.getContextHashCode();
+            currentHashCodes.add(contextHashCode);
+            if (!reference.contains(contextHashCode)) {
+                newHashCodes.add(contextHashCode);
+                isReferenceRequired |= referenceWarnings.contains(getWarningHashCode(annotation));
+            }
+        }
+
+        LongHashSet fixedHashCodes = new LongHashSet(0);
+        for (long contextHashCode : contextHashCodes) {
+            if (!currentHashCodes.contains(contextHashCode)) {
+                fixedHashCodes.add(contextHashCode);
+            }
+        }
+        return new ReferenceDifference(newHashCodes.toArray(), fixedHashCodes.toArray(), isReferenceRequired);
+    }
+
+    private static LongHashSet toSet(final long[] hashCodes) {
+        LongHashSet set = new LongHashSet(hashCodes.length);
+        for (long hashCode : hashCodes) {
+            set.add(hashCode);
+        }
+        return set;
+    }
+
+    /**
+     * Writes these fingerprints to the specified file. The fingerprints are written to a temporary file first that
+     * replaces the specified file afterwards.
+     *
+     * @param file
+     *            the file to write
+     * @throws IOException
+     *             if the file could not be written
+     */
+    public void write(final File file) throws IOException {
+        File temporary = new File(file.getPath() + ".tmp");
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary)));
+        try {
+            output.writeInt(MAGIC);
+            output.writeByte(VERSION);
+            writeHashCodes(output, contextHashCodes);
+            writeHashCodes(output, warningHashCodes);
+        }
+        finally {
+            output.close();
+        }
+        if (!temporary.renameTo(file) && !(file.delete() && temporary.renameTo(file))) {
+            temporary.delete();
+            throw new IOException("Can't replace " + file);
+        }
+    }
+
+    private void writeHashCodes(final DataOutputStream output, final long[] hashCodes) throws IOException {
+        output.writeInt(hashCodes.length);
+        for (long hashCode : hashCodes) {
+            output.writeLong(hashCode);
+        }
+    }
+
+    /**
+     * Reads the fingerprints from the specified file. Files of previous versions are reported as unsupported, so
+     * that the fingerprints are created again.
+     *
+     * @param file
+     *            the file to read
+     * @return the fingerprints
+     * @throws IOException
+     *             if the file could not be read
+     */
+    public static ReferenceFingerprints read(final File file) throws IOException {
+        DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try {
+            if (input.readInt() != MAGIC || input.readByte() != VERSION) {
+                throw new IOException("Unsupported format of PMD fingerprints: " + file);
+            }
+            long[] contextHashCodes = readHashCodes(input);
+            long[] warningHashCodes = readHashCodes(input);
+            return new ReferenceFingerprints(contextHashCodes, warningHashCodes);
+        }
+        finally {
+            input.close();
+        }
+    }
+
+    private static long[] readHashCodes(final DataInputStream input) throws IOException {
+        long[] hashCodes = new long[input.readInt()];
+        for (int i = 0; i < hashCodes.length; i++) {
+            hashCodes[i] = input.readLong();
+        }
+        return hashCodes;
+    }
+}
@@ -0,0 +1,186 @@
+package hudson.plugins.pmd.parser;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.commons.io.IOUtils;
+
+import hudson.Util;
+import hudson.plugins.analysis.util.model.FileAnnotation;
+
+/**
+ * Caches the converted annotations of PMD report files. The cache is local to the JVM that parses the reports
+ * (typically an agent) and is keyed by the content digest of the report, the name of the module, the filter and the
+ * encoding of the source files. The context hash codes of cached annotations depend on the source files rather than
+ * on the report, so they are computed again by the {@link PmdParser} on every cache hit. The cached
+ * annotations are stored in serialized form: every cache hit returns new annotation instances so that the results
+ * of different builds never share mutable objects. The size of the cache is limited by the total number of bytes
+ * of the serialized annotations, least recently used entries are evicted first.
+ *
+ * @author Ulli Hafner
+ */
+public final class ReportCache {
+    /** Maximum size of the cache in MB, may be overridden using a system property. */
+    private static final int MAXIMUM_SIZE_IN_MB = Integer.getInteger(ReportCache.class.getName() + ".maximumSize", 64);
+    private static final int MB = 1024 * 1024;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /** Singleton instance. */
+    private static final ReportCache INSTANCE = new ReportCache(MAXIMUM_SIZE_IN_MB * (long)MB);
+
+    private final Map<String, byte[]> entries = new LinkedHashMap<String, byte[]>(16, 0.75f, true);
+    private final long maximumSize;
+    private long size;
+
+    /**
+     * Returns the singleton instance.
+     *
+     * @return the singleton instance
+     */
+    public static ReportCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Creates a new instance of {@link ReportCache}.
+     *
+     * @param maximumSize
+     *            the maximum number of bytes of all cached entries
+     */
+    ReportCache(final long maximumSize) {
+        this.maximumSize = maximumSize;
+    }
+
+    /**
+     * Creates the cache key for the specified report file.
+     *
+     * @param report
+     *            the PMD report file
+     * @param properties
+     *            the name of the maven module and all other properties that affect the annotations of the report
+     * @return the key of the report
+     * @throws IOException
+     *             if the file could not be read
+     */
+    public static String createKey(final File report, final String properties) throws IOException {
+        InputStream input = new FileInputStream(report);
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] buffer = new byte[BUFFER_SIZE];
+            for (int read = input.read(buffer); read >= 0; read = input.read(buffer)) {
+                digest.update(buffer, 0, read);
+            }
+            return Util.toHexString(digest.digest()) + '@' + properties;
+        }
+        catch (NoSuchAlgorithmException exception) {
+            throw new IOException(exception);
+        }
+        finally {
+            IOUtils.closeQuietly(input);
+        }
+    }
+
+    /**
+     * Returns new instances of the annotations that have been cached for the specified key.
+     *
+     * @param key
+     *            the key of the report
+     * @return the cached annotations or {@code null} if there are no annotations cached for the key
+     */
+    public Collection<FileAnnotation> get(final String key) {
+        byte[] serialized;
+        synchronized (entries) {
+            serialized = entries.get(key);
+        }
+        if (serialized == null) {
+            return null;
+        }
+        return deserialize(key, serialized);
+    }
+
+    /**
+     * Caches the specified annotations.
+     *
+     * @param key
+     *            the key of the report
+     * @param annotations
+     *            the annotations of the report
+     */
+    public void put(final String key, final Collection<FileAnnotation> annotations) {
+        byte[] serialized = serialize(annotations);
+        if (serialized.length > maximumSize) {
+            return;
+        }
+        synchronized (entries) {
+            byte[] previous = entries.put(key, serialized);
+            if (previous != null) {
+                size -= previous.length;
+            }
+            size += serialized.length;
+
+            Iterator<byte[]> leastRecentlyUsed = entries.values().iterator();
+            while (size > maximumSize && leastRecentlyUsed.hasNext()) {
+                size -= leastRecentlyUsed.next().length;
+                leastRecentlyUsed.remove();
+            }
+        }
+    }
+
+    private byte[] serialize(final Collection<FileAnnotation> annotations) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            ObjectOutputStream output = new ObjectOutputStream(bytes);
+            output.writeObject(new ArrayList<FileAnnotation>(annotations));
+            output.close();
+        }
+        catch (IOException exception) {
+            throw new IllegalStateException(exception); // not possible for an in-memory stream
+        }
+        return bytes.toByteArray();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Collection<FileAnnotation> deserialize(final String key, final byte[] serialized) {
+        try {
+            ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(serialized));
+            try {
+                return (Collection<FileAnnotation>)input.readObject();
+            }
+            finally {
+                input.close();
+            }
+        }
+        catch (IOException exception) {
+            logInvalidEntry(key, exception);
+        }
+        catch (ClassNotFoundException exception) {
+            logInvalidEntry(key, exception);
+        }
+        return null;
+    }
+
+    private void logInvalidEntry(final String key, final Exception exception) {
+        Logger.getLogger(ReportCache.class.getName()).log(Level.WARNING, "Can't read cached PMD report " + key, exception);
+        synchronized (entries) {
+            byte[] removed = entries.remove(key);
+            if (removed != null) {
+                size -= removed.length;
+            }
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package hudson.plugins.pmd.parser;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Rendered descriptions of all rules of the registered PMD rule sets. The index is persisted in a compact binary
+ * file so that the rule sets do not need to be parsed again after a restart. The file is tagged with a version that
+ * identifies PMD and the plug-in that rendered the descriptions: an index with a different version is ignored. An index must not be modified after
+ * it has been handed over to other threads.
+ *
+ * @author Ulli Hafner
+ */
+class RuleDescriptionIndex {
+    private static final Logger LOGGER = Logger.getLogger(RuleDescriptionIndex.class.getName());
+    private static final int MAGIC = 0x504d4449; // PMDI
+    private static final int FORMAT_VERSION = 1;
+
+    /** Maps rule set names to the descriptions of their rules. */
+    private final Map<String, Map<String, String>> descriptions = new HashMap<String, Map<String, String>>();
+
+    /**
+     * Adds the description of the specified rule.
+     *
+     * @param ruleSetName
+     *            PMD rule set
+     * @param ruleName
+     *            PMD rule ID
+     * @param description
+     *            the rendered description
+     */
+    void add(final String ruleSetName, final String ruleName, final String description) {
+        Map<String, String> rules = descriptions.get(ruleSetName);
+        if (rules == null) {
+            rules = new HashMap<String, String>();
+            descriptions.put(ruleSetName, rules);
+        }
+        rules.put(ruleName, description);
+    }
+
+    /**
+     * Returns whether this index contains the specified rule set.
+     *
+     * @param ruleSetName
+     *            PMD rule set
+     * @return {@code true} if the rule set is part of this index
+     */
+    boolean contains(final String ruleSetName) {
+        return descriptions.containsKey(ruleSetName);
+    }
+
+    /**
+     * Returns the description of the specified rule.
+     *
+     * @param ruleSetName
+     *            PMD rule set
+     * @param ruleName
+     *            PMD rule ID
+     * @return the description or {@code null} if the rule is not part of this index
+     */
+    String get(final String ruleSetName, final String ruleName) {
+        Map<String, String> rules = descriptions.get(ruleSetName);
+        if (rules == null) {
+            return null;
+        }
+        return rules.get(ruleName);
+    }
+
+    /**
+     * Returns the number of rule sets in this index.
+     *
+     * @return the number of rule sets
+     */
+    int size() {
+        return descriptions.size();
+    }
+
+    /**
+     * Writes this index to the specified file. The file is replaced atomically, so concurrent readers either see
+     * the old or the new index.
+     *
+     * @param file
+     *            the file to write
+     * @param version
+     *            the version of PMD and of the plug-in that rendered the descriptions
+     * @throws IOException
+     *             if the file could not be written
+     */
+    void write(final File file, final String version) throws IOException {
+        File temporary = new File(file.getPath() + ".tmp");
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary)));
+        try {
+            output.writeInt(MAGIC);
+            output.writeByte(FORMAT_VERSION);
+            BugTable.writeString(output, version);
+            BugTable.writeVarInt(output, descriptions.size());
+            for (Entry<String, Map<String, String>> ruleSet : descriptions.entrySet()) {
+                BugTable.writeString(output, ruleSet.getKey());
+                BugTable.writeVarInt(output, ruleSet.getValue().size());
+                for (Entry<String, String> rule : ruleSet.getValue().entrySet()) {
+                    BugTable.writeString(output, rule.getKey());
+                    BugTable.writeString(output, rule.getValue());
+                }
+            }
+        }
+        finally {
+            output.close();
+        }
+        if (!temporary.renameTo(file) && !(file.delete() && temporary.renameTo(file))) {
+            temporary.delete();
+            throw new IOException("Can't replace " + file);
+        }
+    }
+
+    /**
+     * Reads the index from the specified file.
+     *
+     * @param file
+     *            the file to read
+     * @param version
+     *            the version of PMD and of the plug-in that render the descriptions
+     * @return the index or {@code null} if the file does not exist, is corrupt or has been created by a different
+     *         version of PMD or of the plug-in
+     */
+    static RuleDescriptionIndex read(final File file, final String version) {
+        if (!file.isFile()) {
+            return null;
+        }
+        DataInputStream input = null;
+        try {
+            input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            if (input.readInt() != MAGIC || input.readByte() != FORMAT_VERSION
+                    || !version.equals(BugTable.readString(input))) {
+                return null;
+            }
+            RuleDescriptionIndex index = new RuleDescriptionIndex();
+            int ruleSets = BugTable.readVarInt(input);
+            for (int i = 0; i < ruleSets; i++) {
+                String ruleSetName = BugTable.readString(input);
+                int rules = BugTable.readVarInt(input);
+                for (int j = 0; j < rules; j++) {
+                    index.add(ruleSetName, BugTable.readString(input), BugTable.readString(input));
+                }
+            }
+            return index;
+        }
+        catch (IOException exception) {
+            LOGGER.log(Level.WARNING, "Can't read PMD rule description index " + file, exception);
+            return null;
+        }
+        finally {
+            IOUtils.closeQuietly(input);
+        }
+    }
+}
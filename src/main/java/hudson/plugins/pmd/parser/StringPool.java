@@ -0,0 +1,47 @@
+package hudson.plugins.pmd.parser;
+
+import java.io.Serializable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A pool of canonical string instances. Equal strings that are obtained from the pool share the same instance,
+ * so the many equal rule, rule set, package, module and file names of the warnings of a build are stored only once
+ * in the heap. Since Java serialization writes back references for instances that already have been written,
+ * the shared instances are also transferred only once to the controller. In contrast to {@link String#intern()}
+ * the pooled instances are released as soon as the pool is not referenced anymore.
+ *
+ * @author Ulli Hafner
+ */
+class StringPool implements Serializable {
+    private static final long serialVersionUID = -4580823734924226519L;
+
+    private final ConcurrentMap<String, String> pool = new ConcurrentHashMap<String, String>();
+
+    /**
+     * Returns the canonical instance of the specified string.
+     *
+     * @param value
+     *            the string, may be {@code null}
+     * @return the canonical instance of the string, or {@code null} if the string is {@code null}
+     */
+    public String intern(final String value) {
+        if (value == null) {
+            return null;
+        }
+        String canonical = pool.putIfAbsent(value, value);
+        if (canonical == null) {
+            return value;
+        }
+        return canonical;
+    }
+
+    /**
+     * Returns the number of distinct strings in this pool.
+     *
+     * @return the number of distinct strings
+     */
+    public int size() {
+        return pool.size();
+    }
+}
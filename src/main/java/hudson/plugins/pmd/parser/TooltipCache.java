@@ -0,0 +1,125 @@
+package hudson.plugins.pmd.parser;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches the rendered tooltips of PMD rules, keyed by the rule set and the rule name. The size of the cache is
+ * limited by the total number of characters of the cached tooltips: if an entry does not fit anymore, arbitrary
+ * entries are evicted. Readers never block.
+ *
+ * @author Ulli Hafner
+ */
+class TooltipCache {
+    private static final char SEPARATOR = '\0';
+
+    private final Map<String, String> entries = new ConcurrentHashMap<String, String>();
+    private final long maximumWeight;
+    private final AtomicLong weight = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Creates a new instance of {@link TooltipCache}.
+     *
+     * @param maximumWeight
+     *            the maximum number of characters of all cached tooltips
+     */
+    TooltipCache(final long maximumWeight) {
+        this.maximumWeight = maximumWeight;
+    }
+
+    /**
+     * Returns the cached tooltip of the specified rule.
+     *
+     * @param ruleSetName
+     *            PMD rule set
+     * @param ruleName
+     *            PMD rule ID
+     * @return the tooltip or {@code null} if the tooltip is not cached yet
+     */
+    String get(final String ruleSetName, final String ruleName) {
+        String tooltip = entries.get(createKey(ruleSetName, ruleName));
+        if (tooltip == null) {
+            misses.incrementAndGet();
+        }
+        else {
+            hits.incrementAndGet();
+        }
+        return tooltip;
+    }
+
+    /**
+     * Caches the tooltip of the specified rule.
+     *
+     * @param ruleSetName
+     *            PMD rule set
+     * @param ruleName
+     *            PMD rule ID
+     * @param tooltip
+     *            the rendered tooltip
+     */
+    void put(final String ruleSetName, final String ruleName, final String tooltip) {
+        String key = createKey(ruleSetName, ruleName);
+        long entryWeight = weigh(key, tooltip);
+        if (entryWeight > maximumWeight) {
+            return;
+        }
+        String previous = entries.put(key, tooltip);
+        weight.addAndGet(previous == null ? entryWeight : entryWeight - weigh(key, previous));
+
+        for (Iterator<Map.Entry<String, String>> iterator = entries.entrySet().iterator();
+                weight.get() > maximumWeight && iterator.hasNext();) {
+            Map.Entry<String, String> entry = iterator.next();
+            if (!entry.getKey().equals(key) && entries.remove(entry.getKey(), entry.getValue())) {
+                weight.addAndGet(-weigh(entry.getKey(), entry.getValue()));
+            }
+        }
+    }
+
+    private long weigh(final String key, final String tooltip) {
+        return key.length() + tooltip.length();
+    }
+
+    private String createKey(final String ruleSetName, final String ruleName) {
+        return ruleSetName + SEPARATOR + ruleName;
+    }
+
+    /**
+     * Returns the number of cached tooltips.
+     *
+     * @return the number of cached tooltips
+     */
+    int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the total number of characters of all cached tooltips.
+     *
+     * @return the weight of the cache
+     */
+    long getWeight() {
+        return weight.get();
+    }
+
+    /**
+     * Returns the number of requests that have been served from this cache.
+     *
+     * @return the number of cache hits
+     */
+    long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Returns the number of requests that could not be served from this cache.
+     *
+     * @return the number of cache misses
+     */
+    long getMisses() {
+        return misses.get();
+    }
+}
@@ -0,0 +1,188 @@
+package hudson.plugins.pmd.parser;
+
+import java.io.File;
+import java.io.Serializable;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.tools.ant.types.selectors.SelectorUtils;
+
+/**
+ * Filters the violations of a PMD report before they are converted to warnings. Violations can be included or
+ * excluded by rule set, rule, PMD priority (1 to 5) and file. Each property is matched against a comma separated
+ * list of patterns: rule sets and rules use the wildcards {@code *} and {@code ?}, files use Ant file-set patterns
+ * like {@code **}{@code /generated/**}. A violation is accepted if it matches at least one include pattern of each
+ * property (or no include patterns are defined for a property) and none of the exclude patterns.
+ *
+ * @author Ulli Hafner
+ */
+public class ViolationFilter implements Serializable {
+    private static final long serialVersionUID = -6095893758856000391L;
+
+    private static final String[] NO_PATTERNS = new String[0];
+
+    private String[] includeRuleSets = NO_PATTERNS;
+    private String[] excludeRuleSets = NO_PATTERNS;
+    private String[] includeRules = NO_PATTERNS;
+    private String[] excludeRules = NO_PATTERNS;
+    private String[] includePriorities = NO_PATTERNS;
+    private String[] excludePriorities = NO_PATTERNS;
+    private String[] includeFiles = NO_PATTERNS;
+    private String[] excludeFiles = NO_PATTERNS;
+
+    /**
+     * Sets the rule sets to include.
+     *
+     * @param patterns
+     *            comma separated list of rule set patterns
+     */
+    public void setIncludeRuleSets(final String patterns) {
+        includeRuleSets = split(patterns);
+    }
+
+    /**
+     * Sets the rule sets to exclude.
+     *
+     * @param patterns
+     *            comma separated list of rule set patterns
+     */
+    public void setExcludeRuleSets(final String patterns) {
+        excludeRuleSets = split(patterns);
+    }
+
+    /**
+     * Sets the rules to include.
+     *
+     * @param patterns
+     *            comma separated list of rule patterns
+     */
+    public void setIncludeRules(final String patterns) {
+        includeRules = split(patterns);
+    }
+
+    /**
+     * Sets the rules to exclude.
+     *
+     * @param patterns
+     *            comma separated list of rule patterns
+     */
+    public void setExcludeRules(final String patterns) {
+        excludeRules = split(patterns);
+    }
+
+    /**
+     * Sets the PMD priorities to include.
+     *
+     * @param priorities
+     *            comma separated list of PMD priorities (1 to 5)
+     */
+    public void setIncludePriorities(final String priorities) {
+        includePriorities = split(priorities);
+    }
+
+    /**
+     * Sets the PMD priorities to exclude.
+     *
+     * @param priorities
+     *            comma separated list of PMD priorities (1 to 5)
+     */
+    public void setExcludePriorities(final String priorities) {
+        excludePriorities = split(priorities);
+    }
+
+    /**
+     * Sets the files to include.
+     *
+     * @param patterns
+     *            comma separated list of Ant file-set patterns
+     */
+    public void setIncludeFiles(final String patterns) {
+        includeFiles = normalize(split(patterns));
+    }
+
+    /**
+     * Sets the files to exclude.
+     *
+     * @param patterns
+     *            comma separated list of Ant file-set patterns
+     */
+    public void setExcludeFiles(final String patterns) {
+        excludeFiles = normalize(split(patterns));
+    }
+
+    private String[] split(final String patterns) {
+        String[] values = StringUtils.stripAll(StringUtils.split(StringUtils.defaultString(patterns), ','));
+        return values == null ? NO_PATTERNS : values;
+    }
+
+    private String[] normalize(final String[] patterns) {
+        for (int i = 0; i < patterns.length; i++) {
+            patterns[i] = normalize(patterns[i]);
+        }
+        return patterns;
+    }
+
+    private String normalize(final String fileName) {
+        return fileName.replace('/', File.separatorChar).replace('\\', File.separatorChar);
+    }
+
+    /**
+     * Returns whether this filter accepts all violations.
+     *
+     * @return {@code true} if there are no include or exclude patterns, {@code false} otherwise
+     */
+    public boolean isEmpty() {
+        return includeRuleSets.length + excludeRuleSets.length + includeRules.length + excludeRules.length
+                + includePriorities.length + excludePriorities.length + includeFiles.length + excludeFiles.length == 0;
+    }
+
+    /**
+     * Returns whether the violations of the specified file may be accepted.
+     *
+     * @param fileName
+     *            the name of the file
+     * @return {@code true} if the violations of the file may be accepted, {@code false} if all violations of the
+     *         file are rejected
+     */
+    public boolean acceptsFile(final String fileName) {
+        if (includeFiles.length == 0 && excludeFiles.length == 0) {
+            return true;
+        }
+        return accepts(includeFiles, excludeFiles, normalize(StringUtils.defaultString(fileName)), true);
+    }
+
+    /**
+     * Returns whether the specified violation is accepted. The file of the violation is not checked, see
+     * {@link #acceptsFile(String)}.
+     *
+     * @param violation
+     *            the violation
+     * @return {@code true} if the violation is accepted, {@code false} otherwise
+     */
+    public boolean accepts(final Violation violation) {
+        return accepts(includeRuleSets, excludeRuleSets, StringUtils.defaultString(violation.getRuleset()), false)
+                && accepts(includeRules, excludeRules, StringUtils.defaultString(violation.getRule()), false)
+                && accepts(includePriorities, excludePriorities, String.valueOf(violation.getPriority()), false);
+    }
+
+    private boolean accepts(final String[] includes, final String[] excludes, final String value, final boolean isPath) {
+        return (includes.length == 0 || matchesAny(includes, value, isPath)) && !matchesAny(excludes, value, isPath);
+    }
+
+    private boolean matchesAny(final String[] patterns, final String value, final boolean isPath) {
+        for (String pattern : patterns) {
+            if (isPath ? SelectorUtils.matchPath(pattern, value) : SelectorUtils.match(pattern, value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ruleSets=+%s-%s, rules=+%s-%s, priorities=+%s-%s, files=+%s-%s",
+                StringUtils.join(includeRuleSets, ','), StringUtils.join(excludeRuleSets, ','),
+                StringUtils.join(includeRules, ','), StringUtils.join(excludeRules, ','),
+                StringUtils.join(includePriorities, ','), StringUtils.join(excludePriorities, ','),
+                StringUtils.join(includeFiles, ','), StringUtils.join(excludeFiles, ','));
+    }
+}
@@ -0,0 +1,47 @@
+package hudson.plugins.pmd;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import hudson.plugins.analysis.util.model.JavaProject;
+
+/**
+ * Tests the class {@link AnnotationCache}.
+ */
+public class AnnotationCacheTest {
+    private static final String WRONG_STATISTICS = "Wrong statistics";
+
+    /**
+     * Verifies that the least recently used entries are evicted if the budget is exceeded.
+     */
+    @Test
+    public void shouldEvictLeastRecentlyUsedEntries() {
+        AnnotationCache cache = new AnnotationCache(3 * 512);
+        JavaProject first = createProject(1);
+        JavaProject second = createProject(1);
+        JavaProject third = createProject(2);
+
+        cache.put("first", first);
+        cache.put("second", second);
+        assertSame("Wrong project", first, cache.get("first"));
+        cache.put("third", third);
+
+        assertSame("Wrong project", first, cache.get("first"));
+        assertNull("Project not evicted", cache.get("second"));
+        assertSame("Wrong project", third, cache.get("third"));
+
+        assertEquals(WRONG_STATISTICS, 3, cache.getHits());
+        assertEquals(WRONG_STATISTICS, 1, cache.getMisses());
+        assertEquals(WRONG_STATISTICS, 1, cache.getEvictions());
+        assertEquals(WRONG_STATISTICS, 2, cache.getSize());
+        assertEquals(WRONG_STATISTICS, 3 * 512, cache.getWeight());
+    }
+
+    private JavaProject createProject(final int numberOfWarnings) {
+        JavaProject project = mock(JavaProject.class);
+        when(project.getNumberOfAnnotations()).thenReturn(numberOfWarnings);
+        return project;
+    }
+}
@@ -0,0 +1,113 @@
+package hudson.plugins.pmd;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the class {@link AsyncResultWriter}.
+ */
+public class AsyncResultWriterTest {
+    /**
+     * Verifies that readers wait until the pending write has been completed.
+     *
+     * @throws InterruptedException
+     *             if the test has been interrupted
+     */
+    @Test
+    public void shouldWaitForPendingWrite() throws InterruptedException {
+        final CountDownLatch started = new CountDownLatch(1);
+        final AtomicBoolean written = new AtomicBoolean();
+
+        AsyncResultWriter.getInstance().submit("build", new Runnable() {
+            @Override
+            public void run() {
+                started.countDown();
+                try {
+                    Thread.sleep(100);
+                }
+                catch (InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+                }
+                written.set(true);
+            }
+        });
+        started.await();
+
+        AsyncResultWriter.getInstance().await("build");
+
+        assertTrue("Write not completed", written.get());
+    }
+
+    /**
+     * Verifies that the writes of the same files are run in the order of their submission and that readers wait for
+     * all of them.
+     *
+     * @throws InterruptedException
+     *             if the test has been interrupted
+     */
+    @Test
+    public void shouldRunWritesOfSameFilesInOrder() throws InterruptedException {
+        AsyncResultWriter writer = new AsyncResultWriter(2, 2);
+        final CountDownLatch started = new CountDownLatch(1);
+        final List<String> writes = Collections.synchronizedList(new ArrayList<String>());
+
+        writer.submit("build", new Runnable() {
+            @Override
+            public void run() {
+                started.countDown();
+                try {
+                    Thread.sleep(100);
+                }
+                catch (InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+                }
+                writes.add("first");
+            }
+        });
+        started.await();
+        writer.submit("build", new Runnable() {
+            @Override
+            public void run() {
+                writes.add("second");
+            }
+        });
+
+        writer.await("build");
+
+        assertEquals("Wrong writes", Arrays.asList("first", "second"), writes);
+
+        writer.shutdown();
+    }
+
+    /**
+     * Verifies that write operations that are submitted after the shutdown are run in the calling thread.
+     *
+     * @throws InterruptedException
+     *             if the test has been interrupted
+     */
+    @Test
+    public void shouldWriteInCallingThreadAfterShutdown() throws InterruptedException {
+        AsyncResultWriter writer = new AsyncResultWriter(1, 1);
+        writer.shutdown();
+
+        final AtomicReference<Thread> writingThread = new AtomicReference<Thread>();
+        writer.submit("build", new Runnable() {
+            @Override
+            public void run() {
+                writingThread.set(Thread.currentThread());
+            }
+        });
+
+        assertSame("Not written in calling thread", Thread.currentThread(), writingThread.get());
+        assertEquals("Write still pending", 0, writer.getPending());
+    }
+}
@@ -0,0 +1,98 @@
+package hudson.plugins.pmd;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+import hudson.plugins.analysis.util.model.FileAnnotation;
+import hudson.plugins.analysis.util.model.Priority;
+import hudson.plugins.pmd.parser.Bug;
+
+/**
+ * Tests the class {@link DeltaStorage}.
+ */
+public class DeltaStorageTest {
+    /** Provides the delta file. */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Verifies that the warnings of a build are restored from the warnings of the base build and the delta.
+     *
+     * @throws IOException
+     *             if the delta could not be written or read
+     */
+    @Test
+    public void shouldRestoreWarnings() throws IOException {
+        List<FileAnnotation> base = new ArrayList<FileAnnotation>();
+        base.add(createBug("Unchanged", 10));
+        base.add(createBug("Fixed", 20));
+        base.add(createBug("Moved", 30));
+
+        List<FileAnnotation> current = new ArrayList<FileAnnotation>();
+        current.add(createBug("Unchanged", 10));
+        current.add(createBug("Moved", 31));
+        current.add(createBug("New", 40));
+
+        File file = new File(folder.getRoot(), "delta");
+        DeltaStorage.compute(7, 2, base, current).write(file);
+        DeltaStorage delta = DeltaStorage.read(file);
+
+        assertEquals("Wrong base build", 7, delta.getBaseBuild());
+        assertEquals("Wrong chain length", 2, delta.getChainLength());
+
+        List<FileAnnotation> restored = delta.apply(base);
+        assertEquals("Wrong warnings", new HashSet<FileAnnotation>(current), new HashSet<FileAnnotation>(restored));
+        for (FileAnnotation annotation : restored) {
+            if ("Moved".equals(annotation.getMessage())) {
+                assertEquals("Wrong line", 31, annotation.getPrimaryLineNumber());
+            }
+        }
+        assertEquals("Wrong keys", getKeys(current), getKeys(restored));
+        assertFalse("Temporary file not removed", new File(file.getPath() + ".tmp").exists());
+    }
+
+    /**
+     * Verifies that a delta is not applied to warnings that are not the warnings of the base build.
+     *
+     * @throws IOException
+     *             if the delta could not be written or read
+     */
+    @Test(expected = IOException.class)
+    public void shouldRejectWrongBase() throws IOException {
+        List<FileAnnotation> base = new ArrayList<FileAnnotation>();
+        base.add(createBug("Unchanged", 10));
+        base.add(createBug("Fixed", 20));
+
+        List<FileAnnotation> current = new ArrayList<FileAnnotation>();
+        current.add(createBug("Unchanged", 10));
+
+        File file = new File(folder.getRoot(), "delta");
+        DeltaStorage.compute(7, 2, base, current).write(file);
+
+        DeltaStorage.read(file).apply(current);
+    }
+
+    private Set<Long> getKeys(final List<FileAnnotation> annotations) {
+        Set<Long> keys = new HashSet<Long>();
+        for (FileAnnotation annotation : annotations) {
+            keys.add(annotation.getKey());
+        }
+        return keys;
+    }
+
+    private Bug createBug(final String message, final int line) {
+        Bug bug = new Bug(Priority.NORMAL, message, "Basic", message, line);
+        bug.setFileName("/src/Main.java");
+        return bug;
+    }
+}
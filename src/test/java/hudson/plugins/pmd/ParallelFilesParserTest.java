@@ -0,0 +1,128 @@
+package hudson.plugins.pmd;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+import hudson.plugins.pmd.parser.PmdParser;
+
+/**
+ * Tests the class {@link ParallelFilesParser}.
+ */
+public class ParallelFilesParserTest {
+    private static final String PATTERN = "**/pmd*.xml";
+
+    /** Provides the workspace. */
+    @Rule
+    public TemporaryFolder workspace = new TemporaryFolder();
+
+    /**
+     * Verifies that parsing in parallel creates the same result as parsing in the calling thread.
+     *
+     * @throws Exception
+     *             if the files could not be parsed
+     */
+    @Test
+    public void shouldCreateSameResultInParallel() throws Exception {
+        copy("pmd.xml", "a/pmd.xml");
+        copy("4-pmd-warnings.xml", "b/pmd-4.xml");
+        copy("4-pmd-warnings.xml", "c/other.xml");
+
+        PmdParserResult sequential = parse(1, false);
+        PmdParserResult parallel = parse(4, false);
+
+        assertTrue("No warnings found", sequential.getNumberOfAnnotations() > 4);
+        assertEquals("Wrong number of warnings", sequential.getNumberOfAnnotations(),
+                parallel.getNumberOfAnnotations());
+        assertEquals("Wrong warnings", sequential.getAnnotations(), parallel.getAnnotations());
+        assertEquals("Wrong modules", sequential.getModules(), parallel.getModules());
+        assertEquals("Wrong error messages", sequential.getErrorMessages(), parallel.getErrorMessages());
+        assertEquals("Wrong log messages", sequential.getLogMessages(), parallel.getLogMessages());
+        assertEquals("Wrong number of files", 2, parallel.getStatistics().getNumberOfFiles());
+    }
+
+    /**
+     * Verifies that the warnings of the files are logged in the order of the file names, independent of the order
+     * in which the parallel tasks complete.
+     *
+     * @throws Exception
+     *             if the files could not be parsed
+     */
+    @Test
+    public void shouldLogFilesInOrderOfFileNames() throws Exception {
+        copy("pmd.xml", "a/pmd.xml");
+        copy("4-pmd-warnings.xml", "b/pmd.xml");
+
+        String messages = parse(2, false).getLogMessages();
+
+        int first = messages.indexOf("a" + File.separator + "pmd.xml");
+        int second = messages.indexOf("b" + File.separator + "pmd.xml");
+        assertTrue("First file not logged: " + messages, first >= 0);
+        assertTrue("Wrong order: " + messages, first < second);
+        assertEquals("Workspace should be scanned once: " + messages,
+                messages.indexOf("Parsing 2 files"), messages.lastIndexOf("Parsing"));
+    }
+
+    /**
+     * Verifies that an error is reported if no file matches the pattern of a freestyle build, and that only a log
+     * message is written for maven builds.
+     *
+     * @throws Exception
+     *             if the files could not be parsed
+     */
+    @Test
+    public void shouldReportMissingFiles() throws Exception {
+        PmdParserResult result = parse(2, false);
+
+        assertEquals("Wrong number of errors", 1, result.getErrorMessages().size());
+        assertTrue("Pattern not reported: " + result.getErrorMessages(),
+                result.getErrorMessages().iterator().next().contains(PATTERN));
+
+        PmdParserResult mavenResult = parse(2, true);
+
+        assertTrue("Unexpected errors: " + mavenResult.getErrorMessages(), mavenResult.getErrorMessages().isEmpty());
+        assertTrue("Missing files not logged", mavenResult.getLogMessages().contains(PATTERN));
+    }
+
+    /**
+     * Verifies that empty files are reported as errors while the other files are still parsed.
+     *
+     * @throws Exception
+     *             if the files could not be parsed
+     */
+    @Test
+    public void shouldReportEmptyFiles() throws Exception {
+        copy("4-pmd-warnings.xml", "a/pmd.xml");
+        assertTrue("Can't create empty file", workspace.newFile("pmd-empty.xml").isFile());
+
+        PmdParserResult result = parse(2, false);
+
+        assertEquals("Wrong number of warnings", 4, result.getNumberOfAnnotations());
+        assertEquals("Wrong number of errors", 1, result.getErrorMessages().size());
+        assertTrue("Wrong error: " + result.getErrorMessages(),
+                result.getErrorMessages().iterator().next().contains("pmd-empty.xml"));
+    }
+
+    private PmdParserResult parse(final int parallelism, final boolean isMavenBuild)
+            throws IOException, InterruptedException {
+        return new ParallelFilesParser("PMD", PATTERN, new PmdParser(), false, isMavenBuild,
+                parallelism).invoke(workspace.getRoot(), null);
+    }
+
+    private void copy(final String resource, final String fileName) throws IOException {
+        InputStream input = ParallelFilesParserTest.class.getResourceAsStream("parser/" + resource);
+        try {
+            FileUtils.copyInputStreamToFile(input, new File(workspace.getRoot(), fileName));
+        }
+        finally {
+            input.close();
+        }
+    }
+}
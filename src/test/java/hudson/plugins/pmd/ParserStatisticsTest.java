@@ -0,0 +1,45 @@
+package hudson.plugins.pmd;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the class {@link ParserStatistics}.
+ */
+public class ParserStatisticsTest {
+    /**
+     * Verifies that the statistics are sent with the compact form of a {@link PmdParserResult}, so that they are
+     * available on the controller.
+     *
+     * @throws IOException
+     *             if the result could not be serialized
+     * @throws ClassNotFoundException
+     *             if the result could not be deserialized
+     */
+    @Test
+    public void shouldTransferStatisticsWithParserResult() throws IOException, ClassNotFoundException {
+        PmdParserResult result = new PmdParserResult();
+        result.setStatistics(new ParserStatistics(1, 2, 3, 4));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream output = new ObjectOutputStream(bytes);
+        output.writeObject(result);
+        output.close();
+        ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        PmdParserResult copy = (PmdParserResult)input.readObject();
+        input.close();
+
+        ParserStatistics statistics = copy.getStatistics();
+        assertEquals("Wrong scan duration", 1, statistics.getScanDuration());
+        assertEquals("Wrong parse duration", 2, statistics.getParseDuration());
+        assertEquals("Wrong number of files", 3, statistics.getNumberOfFiles());
+        assertEquals("Wrong bytes read", 4, statistics.getBytesRead());
+    }
+}
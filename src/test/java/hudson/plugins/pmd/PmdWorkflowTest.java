@@ -74,5 +74,24 @@ public class PmdWorkflowTest {
         PmdResultAction result = job.getLastBuild().getAction(PmdResultAction.class);
         assertEquals(4, result.getResult().getAnnotations().size());
     }
-}
 
+    /**
+     * Run a workflow job using {@link PmdPublisher} with a {@link PmdViolationFilter} that excludes one of the four
+     * warnings of the example file "/hudson/plugins/pmd/parser/4-pmd-warnings.xml".
+     */
+    @Test
+    public void pmdPublisherWorkflowStepWithFilter() throws Exception {
+        WorkflowJob job = jenkinsRule.jenkins.createProject(WorkflowJob.class, "pmdPublisherWorkflowStepWithFilter");
+        FilePath workspace = jenkinsRule.jenkins.getWorkspaceFor(job);
+        FilePath report = workspace.child("target").child("pmd.xml");
+        report.copyFrom(PmdWorkflowTest.class.getResourceAsStream("/hudson/plugins/pmd/parser/4-pmd-warnings.xml"));
+        job.setDefinition(new CpsFlowDefinition(""
+                        + "node {\n"
+                        + "  step([$class: 'PmdPublisher', filter: [excludeRules: 'UnusedImports']])\n"
+                        + "}\n", true)
+        );
+        jenkinsRule.assertBuildStatusSuccess(job.scheduleBuild2(0));
+        PmdResultAction result = job.getLastBuild().getAction(PmdResultAction.class);
+        assertEquals(3, result.getResult().getAnnotations().size());
+    }
+}
@@ -0,0 +1,217 @@
+package hudson.plugins.pmd;
+
+import org.jenkinsci.plugins.workflow.cps.CpsFlowDefinition;
+import org.jenkinsci.plugins.workflow.job.WorkflowJob;
+import org.jenkinsci.plugins.workflow.job.WorkflowRun;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+import static org.junit.Assert.*;
+
+import hudson.FilePath;
+import hudson.model.Result;
+import hudson.model.Run;
+import hudson.plugins.analysis.core.BuildHistory;
+
+/**
+ * Tests the class {@link ReferenceBuildIndex}.
+ */
+public class ReferenceBuildIndexTest {
+    private static final String STABLE = "node {\n  step([$class: 'PmdPublisher'])\n}\n";
+    private static final String FAILED = "node {\n  step([$class: 'PmdPublisher', failedTotalAll: '0'])\n}\n";
+    private static final String UNSTABLE = "node {\n  step([$class: 'PmdPublisher', unstableTotalAll: '0'])\n}\n";
+    private static final String UNSTABLE_BY_OTHERS = STABLE + "currentBuild.result = 'UNSTABLE'\n";
+    private static final String FAILED_BY_OTHERS = STABLE + "error 'Failed by another step'\n";
+    private static final String WITHOUT_PMD = "node {\n  echo 'No PMD'\n}\n";
+
+    /** Starts Jenkins. */
+    @Rule
+    public JenkinsRule jenkinsRule = new JenkinsRule();
+
+    /**
+     * Verifies that the last stable build is used as reference build.
+     *
+     * @throws Exception
+     *             if the builds could not be run
+     */
+    @Test
+    public void shouldFindLastStableBuild() throws Exception {
+        WorkflowJob job = createJob("stable");
+        build(job, STABLE, Result.SUCCESS);
+        build(job, FAILED, Result.FAILURE);
+        WorkflowRun last = build(job, FAILED, Result.FAILURE);
+
+        ReferenceBuildIndex index = ReferenceBuildIndex.getInstance();
+        index.invalidate(job.getFullName());
+
+        assertEquals("Wrong reference build", 1, index.getReferenceBuildNumber(last, true));
+        assertTrue("Job not indexed", index.isIndexed(job.getFullName()));
+        assertEquals("Wrong reference build", 1, createHistory(last).getReferenceBuild().getNumber());
+    }
+
+    /**
+     * Verifies that the previous build with a PMD result is used as reference build if there is no stable build,
+     * like the history of analysis-core does.
+     *
+     * @throws Exception
+     *             if the builds could not be run
+     */
+    @Test
+    public void shouldUsePreviousBuildIfThereIsNoStableBuild() throws Exception {
+        WorkflowJob job = createJob("failed");
+        build(job, FAILED, Result.FAILURE);
+        WorkflowRun last = build(job, FAILED, Result.FAILURE);
+
+        ReferenceBuildIndex index = ReferenceBuildIndex.getInstance();
+        index.invalidate(job.getFullName());
+
+        assertEquals("Wrong reference build", 1, index.getReferenceBuildNumber(last, true));
+        assertEquals("Wrong reference build", 1, index.getReferenceBuildNumber(last, false));
+        PmdBuildHistory history = createHistory(last);
+        assertTrue("No reference build", history.hasReferenceBuild());
+        assertEquals("Wrong reference build", 1, history.getReferenceBuild().getNumber());
+    }
+
+    /**
+     * Verifies that completed builds update the index and that the entry of a job is dropped if a remembered build
+     * is deleted.
+     *
+     * @throws Exception
+     *             if the builds could not be run
+     */
+    @Test
+    public void shouldUpdateIndexWhenBuildsCompleteOrAreDeleted() throws Exception {
+        WorkflowJob job = createJob("update");
+        build(job, STABLE, Result.SUCCESS);
+        WorkflowRun second = build(job, STABLE, Result.SUCCESS);
+
+        ReferenceBuildIndex index = ReferenceBuildIndex.getInstance();
+        index.invalidate(job.getFullName());
+        assertEquals("Wrong reference build", 1, index.getReferenceBuildNumber(second, true));
+
+        WorkflowRun third = build(job, STABLE, Result.SUCCESS);
+        assertEquals("Newer builds are indexed", ReferenceBuildIndex.UNKNOWN,
+                index.getReferenceBuildNumber(second, true));
+        assertEquals("Wrong reference build", 2, createHistory(third).getReferenceBuild().getNumber());
+
+        third.delete();
+        assertFalse("Entry not dropped", index.isIndexed(job.getFullName()));
+    }
+
+    /**
+     * Verifies that the entry of a job is dropped if the job is renamed.
+     *
+     * @throws Exception
+     *             if the builds could not be run
+     */
+    @Test
+    public void shouldDropEntryOfRenamedJob() throws Exception {
+        WorkflowJob job = createJob("old");
+        build(job, STABLE, Result.SUCCESS);
+        WorkflowRun last = build(job, STABLE, Result.SUCCESS);
+
+        ReferenceBuildIndex index = ReferenceBuildIndex.getInstance();
+        index.getReferenceBuildNumber(last, true);
+        assertTrue("Job not indexed", index.isIndexed("old"));
+
+        job.renameTo("new");
+
+        assertFalse("Entry of old name not dropped", index.isIndexed("old"));
+        assertFalse("Entry of new name found", index.isIndexed("new"));
+    }
+
+    /**
+     * Verifies that the index finds the same reference builds as the history of analysis-core if there are builds
+     * that are unstable due to PMD or due to other reasons.
+     *
+     * @throws Exception
+     *             if the builds could not be run
+     */
+    @Test
+    public void shouldMatchHistoryWithUnstableBuilds() throws Exception {
+        WorkflowJob job = createJob("unstable");
+        assertSameReferenceBuild(build(job, UNSTABLE, Result.UNSTABLE));
+        assertSameReferenceBuild(build(job, STABLE, Result.SUCCESS));
+        assertSameReferenceBuild(build(job, UNSTABLE, Result.UNSTABLE));
+        assertSameReferenceBuild(build(job, UNSTABLE_BY_OTHERS, Result.UNSTABLE));
+        assertSameReferenceBuild(build(job, UNSTABLE, Result.UNSTABLE));
+    }
+
+    /**
+     * Verifies that the index finds the same reference builds as the history of analysis-core if there are builds
+     * that have been failed by the thresholds of PMD or by other steps.
+     *
+     * @throws Exception
+     *             if the builds could not be run
+     */
+    @Test
+    public void shouldMatchHistoryWithFailedBuilds() throws Exception {
+        WorkflowJob job = createJob("failures");
+        assertSameReferenceBuild(build(job, FAILED_BY_OTHERS, Result.FAILURE));
+        assertSameReferenceBuild(build(job, FAILED_BY_OTHERS, Result.FAILURE));
+        assertSameReferenceBuild(build(job, FAILED, Result.FAILURE));
+        assertSameReferenceBuild(build(job, UNSTABLE_BY_OTHERS, Result.UNSTABLE));
+        assertSameReferenceBuild(build(job, FAILED_BY_OTHERS, Result.FAILURE));
+        assertSameReferenceBuild(build(job, FAILED, Result.FAILURE));
+    }
+
+    /**
+     * Verifies that the index finds the same reference builds as the history of analysis-core if there are builds
+     * without a PMD result.
+     *
+     * @throws Exception
+     *             if the builds could not be run
+     */
+    @Test
+    public void shouldMatchHistoryWithBuildsWithoutPmdResult() throws Exception {
+        WorkflowJob job = createJob("mixed");
+        build(job, WITHOUT_PMD, Result.SUCCESS);
+        assertSameReferenceBuild(build(job, STABLE, Result.SUCCESS));
+        build(job, WITHOUT_PMD, Result.SUCCESS);
+        assertSameReferenceBuild(build(job, UNSTABLE, Result.UNSTABLE));
+        build(job, WITHOUT_PMD, Result.SUCCESS);
+        assertSameReferenceBuild(build(job, FAILED, Result.FAILURE));
+        assertSameReferenceBuild(build(job, STABLE, Result.SUCCESS));
+    }
+
+    /**
+     * Verifies that the index and the {@link PmdBuildHistory} find the same reference build for the specified build
+     * as the {@link BuildHistory} of analysis-core, both if the reference build needs to be stable and if not.
+     *
+     * @param baseline
+     *            the build to find the reference build for
+     */
+    private void assertSameReferenceBuild(final WorkflowRun baseline) {
+        ReferenceBuildIndex index = ReferenceBuildIndex.getInstance();
+        for (boolean mustBeStable : new boolean[] {true, false}) {
+            String message = String.format("Wrong reference build of #%d (stable: %b)",
+                    baseline.getNumber(), mustBeStable);
+            Run<?, ?> expected = new BuildHistory(baseline, PmdResultAction.class, false, mustBeStable)
+                    .getReferenceBuild();
+
+            index.invalidate(baseline.getParent().getFullName());
+            assertEquals(message, expected == null ? ReferenceBuildIndex.NONE : expected.getNumber(),
+                    index.getReferenceBuildNumber(baseline, mustBeStable));
+            assertSame(message, expected,
+                    new PmdBuildHistory(baseline, PmdResultAction.class, false, mustBeStable).getReferenceBuild());
+        }
+    }
+
+    private PmdBuildHistory createHistory(final WorkflowRun run) {
+        return new PmdBuildHistory(run, PmdResultAction.class, false, true);
+    }
+
+    private WorkflowJob createJob(final String name) throws Exception {
+        WorkflowJob job = jenkinsRule.jenkins.createProject(WorkflowJob.class, name);
+        FilePath workspace = jenkinsRule.jenkins.getWorkspaceFor(job);
+        workspace.child("target").child("pmd.xml").copyFrom(
+                ReferenceBuildIndexTest.class.getResourceAsStream("/hudson/plugins/pmd/parser/4-pmd-warnings.xml"));
+        return job;
+    }
+
+    private WorkflowRun build(final WorkflowJob job, final String script, final Result expected) throws Exception {
+        job.setDefinition(new CpsFlowDefinition(script, true));
+        return jenkinsRule.assertBuildStatus(expected, job.scheduleBuild2(0).get());
+    }
+}
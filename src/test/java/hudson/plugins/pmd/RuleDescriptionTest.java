@@ -0,0 +1,94 @@
+package hudson.plugins.pmd;
+
+import java.net.URL;
+
+import org.jenkinsci.plugins.workflow.cps.CpsFlowDefinition;
+import org.jenkinsci.plugins.workflow.job.WorkflowJob;
+import org.jenkinsci.plugins.workflow.job.WorkflowRun;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+import static org.junit.Assert.*;
+
+import com.gargoylesoftware.htmlunit.WebRequest;
+import com.gargoylesoftware.htmlunit.WebResponse;
+
+import hudson.FilePath;
+import hudson.plugins.analysis.util.model.Priority;
+import hudson.plugins.pmd.parser.Bug;
+import hudson.plugins.pmd.parser.PmdMessages;
+
+/**
+ * Tests the method {@link PmdResult#doRuleDescription} and the links of the warnings to the rule descriptions.
+ */
+public class RuleDescriptionTest {
+    private static final String RULE_SET = "Basic";
+    private static final String RULE = "EmptyCatchBlock";
+    private static final int OK = 200;
+    private static final int NOT_MODIFIED = 304;
+
+    /** Starts Jenkins. */
+    @Rule
+    public JenkinsRule jenkinsRule = new JenkinsRule();
+
+    /**
+     * Verifies that the description of a rule is served with an entity tag and that conditional requests with this
+     * tag are answered with 304.
+     *
+     * @throws Exception
+     *             if the build could not be run
+     */
+    @Test
+    public void shouldAnswerConditionalRequestWithNotModified() throws Exception {
+        WorkflowRun run = build();
+        Bug warning = new Bug(Priority.HIGH, "message", RULE_SET, RULE, 1);
+        URL url = new URL(jenkinsRule.getURL(), run.getUrl() + PmdDescriptor.RESULT_URL + "/"
+                + warning.getRuleDescriptionUrl());
+        JenkinsRule.WebClient webClient = jenkinsRule.createWebClient();
+
+        WebResponse response = webClient.loadWebResponse(new WebRequest(url));
+
+        assertEquals("Wrong status", OK, response.getStatusCode());
+        assertEquals("Wrong description", PmdMessages.getInstance().getMessage(RULE_SET, RULE),
+                response.getContentAsString());
+        String entityTag = response.getResponseHeaderValue("ETag");
+        assertNotNull("No entity tag", entityTag);
+        assertTrue("Not cacheable", response.getResponseHeaderValue("Cache-Control").contains("max-age"));
+
+        WebRequest conditional = new WebRequest(url);
+        conditional.setAdditionalHeader("If-None-Match", entityTag);
+        WebResponse notModified = webClient.loadWebResponse(conditional);
+
+        assertEquals("Wrong status", NOT_MODIFIED, notModified.getStatusCode());
+        assertEquals("Wrong entity tag", entityTag, notModified.getResponseHeaderValue("ETag"));
+
+        WebRequest outdated = new WebRequest(url);
+        outdated.setAdditionalHeader("If-None-Match", "\"outdated\"");
+
+        assertEquals("Wrong status", OK, webClient.loadWebResponse(outdated).getStatusCode());
+    }
+
+    /**
+     * Verifies that the tooltip of a warning contains the description of its rule and that the URL of the
+     * description is encoded.
+     */
+    @Test
+    public void shouldProvideToolTipAndEncodedDescriptionUrl() {
+        Bug warning = new Bug(Priority.HIGH, "message", "Basic Rules", RULE, 1);
+
+        assertEquals("Wrong tooltip", PmdMessages.getInstance().getMessage("Basic Rules", RULE),
+                warning.getToolTip());
+        assertEquals("Wrong URL", "ruleDescription?ruleSet=Basic+Rules&rule=EmptyCatchBlock",
+                warning.getRuleDescriptionUrl());
+    }
+
+    private WorkflowRun build() throws Exception {
+        WorkflowJob job = jenkinsRule.jenkins.createProject(WorkflowJob.class, "description");
+        FilePath workspace = jenkinsRule.jenkins.getWorkspaceFor(job);
+        workspace.child("target").child("pmd.xml").copyFrom(
+                RuleDescriptionTest.class.getResourceAsStream("/hudson/plugins/pmd/parser/4-pmd-warnings.xml"));
+        job.setDefinition(new CpsFlowDefinition("node {\n  step([$class: 'PmdPublisher'])\n}\n", true));
+        return jenkinsRule.buildAndAssertSuccess(job);
+    }
+}
@@ -0,0 +1,59 @@
+package hudson.plugins.pmd;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the class {@link StageTimings}.
+ */
+public class StageTimingsTest {
+    /**
+     * Verifies that the transfer is the part of the workspace call that has not been spent on the agent.
+     */
+    @Test
+    public void shouldComputeTransferFromTotalDuration() {
+        StageTimings timings = new StageTimings();
+
+        timings.recordParsing(new ParserStatistics(100, 400, 3, 2000), 600, 1000);
+
+        assertEquals("Wrong scan", 100, timings.getScan());
+        assertEquals("Wrong parse", 400, timings.getParse());
+        assertEquals("Wrong transfer", 100, timings.getTransfer());
+        assertEquals("Wrong number of files", 3, timings.getNumberOfFiles());
+        assertEquals("Wrong bytes", 2000, timings.getBytesRead());
+        assertEquals("Wrong warnings per second", 2500, timings.getWarningsPerSecond());
+        assertEquals("Wrong bytes per second", 5000, timings.getBytesPerSecond());
+    }
+
+    /**
+     * Verifies that the transfer is never negative, e.g. if the agent clock is ahead, and that a parse duration of 0
+     * does not divide by zero.
+     */
+    @Test
+    public void shouldHandleInconsistentDurations() {
+        StageTimings timings = new StageTimings();
+
+        timings.recordParsing(new ParserStatistics(100, 0, 1, 10), 50, 20);
+
+        assertEquals("Wrong transfer", 0, timings.getTransfer());
+        assertEquals("Wrong warnings per second", 20000, timings.getWarningsPerSecond());
+    }
+
+    /**
+     * Verifies that the durations of the controller stages are recorded and reported.
+     */
+    @Test
+    public void shouldRecordControllerStages() {
+        StageTimings timings = new StageTimings();
+
+        timings.recordBlame(10);
+        timings.recordEvaluation(20);
+        timings.recordSerialization(30);
+
+        assertEquals("Wrong blame", 10, timings.getBlame());
+        assertEquals("Wrong evaluation", 20, timings.getEvaluation());
+        assertEquals("Wrong serialization", 30, timings.getSerialization());
+        assertTrue("Wrong summary: " + timings, timings.toString().contains("serialization: 30 ms"));
+    }
+}
@@ -0,0 +1,148 @@
+package hudson.plugins.pmd;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+
+import org.apache.commons.io.FileUtils;
+import org.jenkinsci.plugins.workflow.cps.CpsFlowDefinition;
+import org.apache.commons.io.FileUtils;
+import org.jenkinsci.plugins.workflow.job.WorkflowJob;
+import org.apache.commons.io.FileUtils;
+import org.jenkinsci.plugins.workflow.job.WorkflowRun;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.CLICommandInvoker;
+import org.jvnet.hudson.test.JenkinsRule;
+
+import static org.junit.Assert.*;
+
+import com.thoughtworks.xstream.XStream;
+
+import hudson.FilePath;
+import hudson.XmlFile;
+import hudson.plugins.analysis.util.model.FileAnnotation;
+import hudson.plugins.pmd.parser.Bug;
+import hudson.plugins.pmd.parser.CompactAnnotationsConverter;
+import hudson.util.XStream2;
+
+/**
+ * Tests the classes {@link StorageMigration} and {@link MigratePmdStorageCommand}.
+ */
+public class StorageMigrationTest {
+    private static final String WARNINGS_FILE_NAME = "pmd-warnings.xml";
+    private static final String SUMMARY_FILE_NAME = "pmd-summary.bin";
+    private static final int TIMEOUT = 60000;
+    private static final int POLL_INTERVAL = 100;
+
+    /** Starts Jenkins. */
+    @Rule
+    public JenkinsRule jenkinsRule = new JenkinsRule();
+
+    /**
+     * Verifies that warnings of previous releases are converted to the compact format, that the summary is created
+     * and that builds that have been converted already are skipped.
+     *
+     * @throws Exception
+     *             if the build could not be run
+     */
+    @Test
+    public void shouldConvertWarningsOfPreviousFormat() throws Exception {
+        WorkflowRun run = buildWithPreviousFormat("convert");
+        File warnings = new File(run.getRootDir(), WARNINGS_FILE_NAME);
+
+        StorageMigration migration = StorageMigration.getInstance();
+        assertTrue("Migration not started", migration.start(2));
+        waitForMigration(migration);
+
+        assertEquals("Wrong number of scanned builds", 1, migration.getScanned());
+        assertEquals("Wrong number of converted builds", 1, migration.getConverted());
+        assertEquals("Wrong number of failed builds", 0, migration.getFailed());
+        assertTrue("Not in compact format", isCompact(warnings));
+        assertTrue("No summary", new File(run.getRootDir(), SUMMARY_FILE_NAME).isFile());
+        PmdResult result = run.getAction(PmdResultAction.class).getResult();
+        assertEquals("Wrong number of warnings", 4, result.getNumberOfAnnotations());
+        assertEquals("Wrong number of warnings in summary", 4, result.getWarningsSummary().getTotal());
+
+        assertTrue("Migration not started", migration.start(1));
+        waitForMigration(migration);
+
+        assertEquals("Wrong number of converted builds", 0, migration.getConverted());
+        assertEquals("Wrong number of skipped builds", 1, migration.getSkipped());
+        assertEquals("Nothing should be saved", 0, migration.getBytesSaved());
+    }
+
+    /**
+     * Verifies that builds with a broken summary are converted again.
+     *
+     * @throws Exception
+     *             if the build could not be run
+     */
+    @Test
+    public void shouldConvertBuildsWithBrokenSummary() throws Exception {
+        WorkflowRun run = buildWithPreviousFormat("broken");
+
+        StorageMigration migration = StorageMigration.getInstance();
+        assertTrue("Migration not started", migration.start(1));
+        waitForMigration(migration);
+
+        File summary = new File(run.getRootDir(), SUMMARY_FILE_NAME);
+        FileUtils.writeByteArrayToFile(summary, new byte[] {'P', 'M'});
+
+        assertTrue("Migration not started", migration.start(1));
+        waitForMigration(migration);
+
+        assertEquals("Wrong number of converted builds", 1, migration.getConverted());
+        assertEquals("Wrong number of warnings in summary", 4, WarningsSummary.read(summary).getTotal());
+    }
+
+    /**
+     * Verifies that the CLI command converts the warnings and reports the result.
+     *
+     * @throws Exception
+     *             if the build could not be run
+     */
+    @Test
+    public void shouldMigrateWithCommand() throws Exception {
+        WorkflowRun run = buildWithPreviousFormat("command");
+
+        CLICommandInvoker.Result result = new CLICommandInvoker(jenkinsRule, "migrate-pmd-storage")
+                .invokeWithArgs("-threads", "1");
+
+        assertEquals("Command failed: " + result.stderr(), 0, result.returnCode());
+        assertTrue("No summary: " + result.stdout(), result.stdout().contains("Migration of the PMD warnings finished"));
+        assertTrue("Not in compact format", isCompact(new File(run.getRootDir(), WARNINGS_FILE_NAME)));
+    }
+
+    private WorkflowRun buildWithPreviousFormat(final String name) throws Exception {
+        WorkflowJob job = jenkinsRule.jenkins.createProject(WorkflowJob.class, name);
+        FilePath workspace = jenkinsRule.jenkins.getWorkspaceFor(job);
+        workspace.child("target").child("pmd.xml").copyFrom(
+                StorageMigrationTest.class.getResourceAsStream("/hudson/plugins/pmd/parser/4-pmd-warnings.xml"));
+        job.setDefinition(new CpsFlowDefinition("node {\n  step([$class: 'PmdPublisher'])\n}\n", true));
+        WorkflowRun run = jenkinsRule.buildAndAssertSuccess(job);
+
+        PmdResult result = run.getAction(PmdResultAction.class).getResult();
+        Collection<FileAnnotation> annotations = result.getAnnotations();
+        File warnings = new File(run.getRootDir(), WARNINGS_FILE_NAME);
+        XStream xstream = new XStream2();
+        xstream.alias("bug", Bug.class);
+        new XmlFile(xstream, warnings).write(annotations.toArray(new FileAnnotation[annotations.size()]));
+        assertFalse("Unexpected compact format", isCompact(warnings));
+        assertTrue("Summary not deleted", new File(run.getRootDir(), SUMMARY_FILE_NAME).delete());
+
+        return run;
+    }
+
+    private void waitForMigration(final StorageMigration migration) throws InterruptedException {
+        long end = System.currentTimeMillis() + TIMEOUT;
+        while (migration.isRunning() && System.currentTimeMillis() < end) {
+            Thread.sleep(POLL_INTERVAL);
+        }
+        assertFalse("Migration did not finish", migration.isRunning());
+    }
+
+    private boolean isCompact(final File warnings) throws IOException {
+        return new XmlFile(warnings).asString().contains(CompactAnnotationsConverter.COMPACT_FORMAT);
+    }
+}
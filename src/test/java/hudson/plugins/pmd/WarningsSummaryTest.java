@@ -0,0 +1,62 @@
+package hudson.plugins.pmd;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+import hudson.plugins.analysis.util.model.FileAnnotation;
+import hudson.plugins.analysis.util.model.Priority;
+import hudson.plugins.pmd.parser.Bug;
+
+/**
+ * Tests the class {@link WarningsSummary}.
+ */
+public class WarningsSummaryTest {
+    private static final String WRONG_COUNT = "Wrong count";
+
+    /** Provides the summary file. */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Verifies that the counts are computed and restored from the file.
+     *
+     * @throws IOException
+     *             if the summary could not be written or read
+     */
+    @Test
+    public void shouldRestoreCounts() throws IOException {
+        List<FileAnnotation> annotations = new ArrayList<FileAnnotation>();
+        annotations.add(createBug(Priority.HIGH, "Basic", "EmptyIf", "core"));
+        annotations.add(createBug(Priority.NORMAL, "Basic", "EmptyIf", "core"));
+        annotations.add(createBug(Priority.NORMAL, "Braces", "IfStmtsMustUseBraces", "ui"));
+
+        File file = new File(folder.getRoot(), "summary");
+        new WarningsSummary(annotations, 2, 1).write(file);
+        WarningsSummary summary = WarningsSummary.read(file);
+
+        assertEquals(WRONG_COUNT, 3, summary.getTotal());
+        assertEquals(WRONG_COUNT, 2, summary.getNew());
+        assertEquals(WRONG_COUNT, 1, summary.getFixed());
+        assertEquals(WRONG_COUNT, 1, summary.getHigh());
+        assertEquals(WRONG_COUNT, 2, summary.getNormal());
+        assertEquals(WRONG_COUNT, 0, summary.getLow());
+        assertEquals(WRONG_COUNT, 2, summary.getNumberOfWarningsOfModule("core"));
+        assertEquals(WRONG_COUNT, 0, summary.getNumberOfWarningsOfModule("other"));
+        assertEquals(WRONG_COUNT, 2, summary.getNumberOfWarningsOfRule("Basic", "EmptyIf"));
+        assertEquals(WRONG_COUNT, 1, summary.getNumberOfWarningsOfRule("Braces", "IfStmtsMustUseBraces"));
+    }
+
+    private Bug createBug(final Priority priority, final String ruleSet, final String rule, final String module) {
+        Bug bug = new Bug(priority, "message", ruleSet, rule, 1);
+        bug.setModuleName(module);
+        return bug;
+    }
+}
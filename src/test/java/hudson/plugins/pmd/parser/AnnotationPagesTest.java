@@ -0,0 +1,113 @@
+package hudson.plugins.pmd.parser;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+import hudson.plugins.analysis.util.model.FileAnnotation;
+import hudson.plugins.analysis.util.model.Priority;
+
+/**
+ * Tests the class {@link AnnotationPages}.
+ */
+public class AnnotationPagesTest {
+    private static final String WRONG_WARNINGS = "Wrong warnings";
+
+    /** Provides the pages file. */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Verifies that the slices of the warnings are read from the pages.
+     *
+     * @throws InvocationTargetException
+     *             if the report could not be parsed
+     * @throws IOException
+     *             if the pages could not be written or read
+     */
+    @Test
+    public void shouldReadSlices() throws InvocationTargetException, IOException {
+        Collection<FileAnnotation> annotations = parse("pmd.xml");
+        File file = new File(folder.getRoot(), "pages");
+        AnnotationPages.write(file, annotations);
+
+        AnnotationPages pages = AnnotationPages.open(file);
+
+        Set<String> files = new HashSet<String>();
+        for (FileAnnotation annotation : annotations) {
+            files.add(annotation.getFileName());
+        }
+        assertEquals("Wrong number of pages", files.size(), pages.size());
+        assertEquals(WRONG_WARNINGS, annotations.size(), pages.readModule("module").size());
+        assertTrue(WRONG_WARNINGS, pages.readModule("other").isEmpty());
+
+        FileAnnotation first = annotations.iterator().next();
+        assertEquals(WRONG_WARNINGS, select(annotations, first.getFileName(), null),
+                new HashSet<FileAnnotation>(pages.readFile(first.getFileName())));
+        for (Priority priority : Priority.values()) {
+            assertEquals(WRONG_WARNINGS, select(annotations, null, priority),
+                    new HashSet<FileAnnotation>(pages.readPriority(priority)));
+        }
+        for (FileAnnotation annotation : pages.readPackage(first.getPackageName())) {
+            assertEquals(WRONG_WARNINGS, first.getPackageName(), annotation.getPackageName());
+        }
+    }
+
+    /**
+     * Verifies that the names of modules, packages and files are found by the hash codes that are used in the links
+     * of the detail views.
+     *
+     * @throws InvocationTargetException
+     *             if the report could not be parsed
+     * @throws IOException
+     *             if the pages could not be written or read
+     */
+    @Test
+    public void shouldFindNamesByHashCode() throws InvocationTargetException, IOException {
+        Collection<FileAnnotation> annotations = parse("pmd.xml");
+        File file = new File(folder.getRoot(), "pages");
+        AnnotationPages.write(file, annotations);
+
+        AnnotationPages pages = AnnotationPages.open(file);
+
+        FileAnnotation first = annotations.iterator().next();
+        assertEquals("Wrong module", "module", pages.findModuleName("module".hashCode()));
+        assertEquals("Wrong package", first.getPackageName(),
+                pages.findPackageName(first.getPackageName().hashCode()));
+        assertEquals("Wrong file", first.getFileName(), pages.findFileName(first.getFileName().hashCode()));
+        assertNull("Unknown module found", pages.findModuleName("other".hashCode()));
+    }
+
+    private Set<FileAnnotation> select(final Collection<FileAnnotation> annotations, final String fileName,
+            final Priority priority) {
+        Set<FileAnnotation> selected = new HashSet<FileAnnotation>();
+        for (FileAnnotation annotation : annotations) {
+            if ((fileName == null || fileName.equals(annotation.getFileName()))
+                    && (priority == null || priority == annotation.getPriority())) {
+                selected.add(annotation);
+            }
+        }
+        return selected;
+    }
+
+    private Collection<FileAnnotation> parse(final String fileName) throws InvocationTargetException {
+        InputStream file = AnnotationPagesTest.class.getResourceAsStream(fileName);
+        try {
+            return new PmdParser().parse(file, "module");
+        }
+        finally {
+            IOUtils.closeQuietly(file);
+        }
+    }
+}
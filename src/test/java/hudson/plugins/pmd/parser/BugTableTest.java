@@ -0,0 +1,130 @@
+package hudson.plugins.pmd.parser;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+import hudson.plugins.analysis.util.model.FileAnnotation;
+
+/**
+ * Tests the class {@link BugTable}.
+ */
+public class BugTableTest {
+    private static final String WRONG_WARNING_PROPERTY = "Wrong warning property";
+
+    /**
+     * Verifies that all warnings are restored with the same properties.
+     *
+     * @throws InvocationTargetException
+     *             if the report could not be parsed
+     * @throws IOException
+     *             if the table could not be written or read
+     */
+    @Test
+    public void shouldRestoreAllWarnings() throws InvocationTargetException, IOException {
+        Collection<FileAnnotation> expected = parse("pmd.xml");
+        FileAnnotation blamed = expected.iterator().next();
+        blamed.setAuthorName("Ulli Hafner");
+        blamed.setCommitId("8011d09");
+
+        List<FileAnnotation> actual = writeAndRead(expected);
+
+        assertEquals("Wrong number of warnings", expected.size(), actual.size());
+        Iterator<FileAnnotation> actualIterator = actual.iterator();
+        for (FileAnnotation expectedAnnotation : expected) {
+            FileAnnotation actualAnnotation = actualIterator.next();
+
+            assertEquals(WRONG_WARNING_PROPERTY, expectedAnnotation, actualAnnotation);
+            assertEquals(WRONG_WARNING_PROPERTY, expectedAnnotation.getMessage(), actualAnnotation.getMessage());
+            assertEquals(WRONG_WARNING_PROPERTY, expectedAnnotation.getFileName(), actualAnnotation.getFileName());
+            assertEquals(WRONG_WARNING_PROPERTY, expectedAnnotation.getModuleName(), actualAnnotation.getModuleName());
+            assertEquals(WRONG_WARNING_PROPERTY, expectedAnnotation.getContextHashCode(), actualAnnotation.getContextHashCode());
+            assertEquals(WRONG_WARNING_PROPERTY, expectedAnnotation.getAuthorName(), actualAnnotation.getAuthorName());
+            assertEquals(WRONG_WARNING_PROPERTY, expectedAnnotation.getCommitId(), actualAnnotation.getCommitId());
+            assertEquals(WRONG_WARNING_PROPERTY, expectedAnnotation.getKey(), actualAnnotation.getKey());
+        }
+    }
+
+    /**
+     * Verifies that the keys of the warnings are restored, so that the URLs of the warnings do not change.
+     *
+     * @throws InvocationTargetException
+     *             if the report could not be parsed
+     * @throws IOException
+     *             if the table could not be written or read
+     */
+    @Test
+    public void shouldRestoreKeys() throws InvocationTargetException, IOException {
+        Collection<FileAnnotation> expected = parse("pmd.xml");
+        parse("pmd.xml"); // advances the key counter
+
+        List<FileAnnotation> actual = writeAndRead(expected);
+        List<FileAnnotation> actualAgain = writeAndRead(actual);
+
+        Iterator<FileAnnotation> actualIterator = actual.iterator();
+        Iterator<FileAnnotation> actualAgainIterator = actualAgain.iterator();
+        for (FileAnnotation expectedAnnotation : expected) {
+            assertEquals("Wrong key", expectedAnnotation.getKey(), actualIterator.next().getKey());
+            assertEquals("Wrong key", expectedAnnotation.getKey(), actualAgainIterator.next().getKey());
+        }
+    }
+
+    /**
+     * Verifies that a copy has the same properties and the specified key.
+     *
+     * @throws InvocationTargetException
+     *             if the report could not be parsed
+     */
+    @Test
+    public void shouldCopyWarningWithKey() throws InvocationTargetException {
+        FileAnnotation original = parse("pmd.xml").iterator().next();
+
+        FileAnnotation copy = BugTable.copy(original, 42);
+
+        assertEquals("Wrong key", 42, copy.getKey());
+        assertEquals(WRONG_WARNING_PROPERTY, BugTable.createKey(original), BugTable.createKey(copy));
+    }
+
+    /**
+     * Verifies that an empty collection is restored.
+     *
+     * @throws IOException
+     *             if the table could not be written or read
+     */
+    @Test
+    public void shouldRestoreEmptyCollection() throws IOException {
+        assertTrue("Expected no warnings", writeAndRead(Collections.<FileAnnotation>emptyList()).isEmpty());
+    }
+
+    private List<FileAnnotation> writeAndRead(final Collection<FileAnnotation> annotations) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        BugTable.write(annotations, output);
+        output.close();
+
+        return BugTable.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+    }
+
+    private Collection<FileAnnotation> parse(final String fileName) throws InvocationTargetException {
+        InputStream file = BugTableTest.class.getResourceAsStream(fileName);
+        try {
+            return new PmdParser().parse(file, "module");
+        }
+        finally {
+            IOUtils.closeQuietly(file);
+        }
+    }
+}
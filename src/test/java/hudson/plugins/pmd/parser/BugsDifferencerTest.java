@@ -1,14 +1,26 @@
 package hudson.plugins.pmd.parser;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
 import hudson.plugins.analysis.core.IssueDifference;
 import hudson.plugins.analysis.test.AnnotationDifferencerTest;
 import hudson.plugins.analysis.util.model.FileAnnotation;
 import hudson.plugins.analysis.util.model.Priority;
 
 /**
- * Tests the {@link IssueDifference} for bugs.
+ * Tests the {@link IssueDifference} and the {@link FingerprintDifferencer} for bugs.
  */
 public class BugsDifferencerTest extends AnnotationDifferencerTest {
+    private static final int NUMBER_OF_WARNINGS = 100000;
+
     @Override
     public FileAnnotation createAnnotation(final String fileName, final Priority priority, final String message, final String category,
             final String type, final int start, final int end) {
@@ -16,5 +28,65 @@ public class BugsDifferencerTest extends AnnotationDifferencerTest {
         bug.setFileName(fileName);
         return bug;
     }
-}
 
+    /**
+     * Verifies that the fingerprint differencer finds the same new and fixed warnings as a comparison of whole
+     * warnings followed by a comparison of context hash codes.
+     */
+    @Test
+    public void shouldFindNewAndFixedWarningsOfLargeInput() {
+        Random random = new Random(1);
+        List<FileAnnotation> reference = new ArrayList<FileAnnotation>();
+        List<FileAnnotation> current = new ArrayList<FileAnnotation>();
+        for (int i = 0; i < NUMBER_OF_WARNINGS; i++) {
+            int state = random.nextInt(100);
+            if (state < 95) { // unchanged
+                reference.add(createBug(i, i, i));
+                current.add(createBug(i, i, i));
+            }
+            else if (state < 97) { // moved, same context
+                reference.add(createBug(i, i, i));
+                current.add(createBug(i, i + 1, i));
+            }
+            else if (state < 98) { // same line, changed context
+                reference.add(createBug(i, i, i));
+                current.add(createBug(i, i, -i));
+            }
+            else if (state < 99) { // fixed
+                reference.add(createBug(i, i, i));
+            }
+            else { // new
+                current.add(createBug(i, i, -i - NUMBER_OF_WARNINGS));
+            }
+        }
+
+        assertEquals("Wrong new warnings", getNewAnnotations(current, reference),
+                FingerprintDifferencer.getNewAnnotations(current, reference));
+        assertEquals("Wrong fixed warnings", getNewAnnotations(reference, current),
+                FingerprintDifferencer.getFixedAnnotations(current, reference));
+    }
+
+    private Bug createBug(final int id, final int line, final int contextHashCode) {
+        Bug bug = new Bug(Priority.NORMAL, "Message " + id, "Basic", "Rule", line);
+        bug.setFileName("/src/File" + id % 1000 + ".java");
+        bug.setContextHashCode(contextHashCode);
+        return bug;
+    }
+
+    private Set<FileAnnotation> getNewAnnotations(final List<FileAnnotation> current,
+            final List<FileAnnotation> reference) {
+        Set<FileAnnotation> difference = new HashSet<FileAnnotation>(current);
+        difference.removeAll(new HashSet<FileAnnotation>(reference));
+        Set<Long> contextHashCodes = new HashSet<Long>();
+        for (FileAnnotation annotation : reference) {
+            contextHashCodes.add((long)annotation.getContextHashCode());
+        }
+        Set<FileAnnotation> newAnnotations = new HashSet<FileAnnotation>();
+        for (FileAnnotation annotation : difference) {
+            if (!contextHashCodes.contains((long)annotation.getContextHashCode())) {
+                newAnnotations.add(annotation);
+            }
+        }
+        return newAnnotations;
+    }
+}
@@ -0,0 +1,76 @@
+package hudson.plugins.pmd.parser;
+
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Collection;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+import com.thoughtworks.xstream.XStream;
+
+import hudson.plugins.analysis.util.model.FileAnnotation;
+import hudson.util.XStream2;
+
+/**
+ * Tests the class {@link CompactAnnotationsConverter}.
+ */
+public class CompactAnnotationsConverterTest {
+    /**
+     * Verifies that warnings are written in the compact format and are read again.
+     *
+     * @throws InvocationTargetException
+     *             if the report could not be parsed
+     */
+    @Test
+    public void shouldRestoreWarningsOfCompactFormat() throws InvocationTargetException {
+        FileAnnotation[] expected = parse("pmd.xml");
+
+        String xml = createXStream().toXML(expected);
+
+        assertTrue("Not in compact format: " + xml, xml.contains(CompactAnnotationsConverter.COMPACT_FORMAT));
+        assertTrue("Compact format is not smaller", xml.length() < createDefaultXStream().toXML(expected).length());
+        assertArrayEquals("Wrong warnings", expected, (FileAnnotation[])createXStream().fromXML(xml));
+    }
+
+    /**
+     * Verifies that warnings that have been written by previous releases are still read.
+     *
+     * @throws InvocationTargetException
+     *             if the report could not be parsed
+     */
+    @Test
+    public void shouldRestoreWarningsOfPreviousFormat() throws InvocationTargetException {
+        FileAnnotation[] expected = parse("pmd.xml");
+
+        String xml = createDefaultXStream().toXML(expected);
+
+        assertFalse("Unexpected compact format", xml.contains(CompactAnnotationsConverter.COMPACT_FORMAT));
+        assertArrayEquals("Wrong warnings", expected, (FileAnnotation[])createXStream().fromXML(xml));
+    }
+
+    private XStream createXStream() {
+        XStream xstream = createDefaultXStream();
+        xstream.registerConverter(new CompactAnnotationsConverter(xstream.getMapper()), XStream.PRIORITY_VERY_HIGH);
+        return xstream;
+    }
+
+    private XStream createDefaultXStream() {
+        XStream xstream = new XStream2();
+        xstream.alias("bug", Bug.class);
+        return xstream;
+    }
+
+    private FileAnnotation[] parse(final String fileName) throws InvocationTargetException {
+        InputStream file = CompactAnnotationsConverterTest.class.getResourceAsStream(fileName);
+        try {
+            Collection<FileAnnotation> annotations = new PmdParser().parse(file, "module");
+            return annotations.toArray(new FileAnnotation[annotations.size()]);
+        }
+        finally {
+            IOUtils.closeQuietly(file);
+        }
+    }
+}
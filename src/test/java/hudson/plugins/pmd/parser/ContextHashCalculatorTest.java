@@ -0,0 +1,97 @@
+package hudson.plugins.pmd.parser;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+import hudson.plugins.analysis.core.AbstractAnnotationParser;
+import hudson.plugins.analysis.util.model.FileAnnotation;
+import hudson.plugins.analysis.util.model.Priority;
+
+/**
+ * Tests the class {@link ContextHashCalculator}.
+ */
+public class ContextHashCalculatorTest {
+    private static final int NUMBER_OF_LINES = 40;
+
+    /** Provides the source file. */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Verifies that the context hash codes of all lines are the same as the hash codes that are computed for each
+     * warning individually.
+     *
+     * @throws IOException
+     *             if the source file could not be created
+     */
+    @Test
+    public void shouldComputeSameHashCodesAsSingleWarningComputation() throws IOException {
+        File source = folder.newFile("Source.java");
+        List<String> lines = new ArrayList<String>();
+        for (int line = 0; line < NUMBER_OF_LINES; line++) {
+            lines.add("line " + line);
+        }
+        FileUtils.writeLines(source, "UTF-8", lines);
+
+        List<Bug> bugs = new ArrayList<Bug>();
+        for (int line = 0; line <= NUMBER_OF_LINES + 1; line++) {
+            bugs.add(new Bug(Priority.HIGH, "Message", "Category", "Type" + line, line));
+        }
+        new ContextHashCalculator("UTF-8").computeContextHashCodes(source.getAbsolutePath(), bugs);
+
+        SingleWarningParser parser = new SingleWarningParser();
+        for (Bug bug : bugs) {
+            assertEquals("Wrong hash code for line " + bug.getPrimaryLineNumber(),
+                    parser.createHashCode(source.getAbsolutePath(), bug.getPrimaryLineNumber(), bug.getType()),
+                    bug.getContextHashCode());
+        }
+    }
+
+    /**
+     * Verifies that the context hash code of a warning in a file that does not exist is the same as the hash code
+     * that is computed for the warning individually.
+     */
+    @Test
+    public void shouldComputeSameHashCodesForMissingFiles() {
+        Bug bug = new Bug(Priority.HIGH, "Message", "Category", "Type", 1);
+        List<Bug> bugs = new ArrayList<Bug>();
+        bugs.add(bug);
+        String fileName = new File(folder.getRoot(), "Missing.java").getAbsolutePath();
+
+        new ContextHashCalculator("UTF-8").computeContextHashCodes(fileName, bugs);
+
+        assertEquals("Wrong hash code", new SingleWarningParser().createHashCode(fileName, 1, "Type"),
+                bug.getContextHashCode());
+    }
+
+    /**
+     * Provides access to the context hash code computation of the base class.
+     */
+    private static class SingleWarningParser extends AbstractAnnotationParser {
+        private static final long serialVersionUID = 1L;
+
+        SingleWarningParser() {
+            super("UTF-8");
+        }
+
+        int createHashCode(final String fileName, final int line, final String warningType) {
+            return createContextHashCode(fileName, line, warningType);
+        }
+
+        @Override
+        public Collection<FileAnnotation> parse(final InputStream file, final String moduleName) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
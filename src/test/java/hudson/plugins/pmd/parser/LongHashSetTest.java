@@ -0,0 +1,37 @@
+package hudson.plugins.pmd.parser;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the class {@link LongHashSet}.
+ */
+public class LongHashSetTest {
+    /**
+     * Verifies that the set contains exactly the added values, including zero and negative values.
+     */
+    @Test
+    public void shouldContainAddedValues() {
+        LongHashSet set = new LongHashSet(0);
+        Set<Long> expected = new HashSet<Long>();
+        Random random = new Random(42);
+        for (int i = 0; i < 10000; i++) {
+            long value = i % 100 == 0 ? 0 : random.nextLong() >> random.nextInt(64);
+            assertEquals("Wrong result of add", expected.add(value), set.add(value));
+        }
+
+        assertEquals("Wrong size", expected.size(), set.size());
+        for (long value : expected) {
+            assertTrue("Value not found: " + value, set.contains(value));
+        }
+        for (int i = 0; i < 10000; i++) {
+            long value = random.nextLong();
+            assertEquals("Wrong result of contains", expected.contains(value), set.contains(value));
+        }
+    }
+}
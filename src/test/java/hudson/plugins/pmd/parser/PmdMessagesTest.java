@@ -1,8 +1,13 @@
 package hudson.plugins.pmd.parser;
 
+import java.io.File;
+import java.util.Collections;
+
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
-import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.*;
 
 /**
  * Tests the class {@link PmdMessages}.
@@ -10,6 +15,10 @@ import static org.junit.Assert.assertEquals;
  * @author Ullrich Hafner
  */
 public class PmdMessagesTest {
+    /** Provides the index file. */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     /**
      * Verifies that the PMD messages could be correctly read.
      */
@@ -34,4 +43,54 @@ public class PmdMessagesTest {
                 "      </pre>",
                 PmdMessages.getInstance().getMessage("Empty Code", "EmptyCatchBlock"));
     }
-}
\ No newline at end of file
+
+    /**
+     * Verifies that messages of rule sets that are not registered are empty.
+     */
+    @Test
+    public void shouldReturnEmptyMessageForUnknownRuleSet() {
+        assertEquals("Wrong message: ", "", PmdMessages.getInstance().getMessage("Unknown", "EmptyCatchBlock"));
+        assertEquals("Wrong message: ", "", PmdMessages.getInstance().getMessage("Empty Code", "Unknown"));
+    }
+
+    /**
+     * Verifies that reloading the rule sets replaces the descriptions and writes the index.
+     *
+     * @throws Exception
+     *             if the rule sets could not be loaded
+     */
+    @Test
+    public void shouldReloadRuleSets() throws Exception {
+        File indexFile = folder.newFile("index");
+
+        assertEquals("Wrong number of rulesets found: ", 25,
+                PmdMessages.getInstance().reload(Collections.<String>emptyList(), indexFile).get().intValue());
+
+        assertTrue("Index not written", indexFile.length() > 0);
+        assertTrue("Wrong message: ", PmdMessages.getInstance().getMessage("Empty Code", "EmptyCatchBlock")
+                .contains("Empty Catch Block finds instances where an exception is caught"));
+    }
+
+    /**
+     * Verifies that an index that has been written by a different release of the plug-in is ignored.
+     *
+     * @throws Exception
+     *             if the rule sets could not be loaded
+     */
+    @Test
+    public void shouldIgnoreIndexOfOtherPluginVersion() throws Exception {
+        File indexFile = folder.newFile("index");
+        PmdMessages messages = PmdMessages.getInstance();
+        try {
+            messages.setPluginVersion("1.0");
+            messages.reload(Collections.<String>emptyList(), indexFile).get();
+            assertTrue("Index of same version not read", messages.readIndex(indexFile));
+
+            messages.setPluginVersion("2.0");
+            assertFalse("Index of other version read", messages.readIndex(indexFile));
+        }
+        finally {
+            messages.setPluginVersion("test");
+        }
+    }
+}
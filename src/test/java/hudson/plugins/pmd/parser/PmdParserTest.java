@@ -1,11 +1,16 @@
 package hudson.plugins.pmd.parser;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.InvocationTargetException;
 import java.util.Collection;
+import java.util.Iterator;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import static org.junit.Assert.*;
 
@@ -22,6 +27,55 @@ public class PmdParserTest {
     private static final String WRONG_WARNING_PROPERTY = "Wrong warning property";
     /** Error message. */
     private static final String ERROR_MESSAGE = "Wrong number of warnings detected.";
+    private static final String UTF_8 = "UTF-8";
+
+    /** Provides the report and source files. */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Verifies that an unchanged report is found in the {@link ReportCache} and that the context hash codes of the
+     * cached warnings are computed again from the current source files.
+     *
+     * @throws IOException
+     *             if the files could not be written
+     * @throws InvocationTargetException
+     *             if the report could not be parsed
+     */
+    @Test
+    public void shouldComputeContextHashCodesOfCachedWarnings() throws IOException, InvocationTargetException {
+        java.io.File source = folder.newFile("Main.java");
+        FileUtils.writeStringToFile(source,
+                "class Main {\n    void run() {\n        try {} catch (Exception e) {}\n    }\n}\n", UTF_8);
+        java.io.File report = folder.newFile("pmd.xml");
+        FileUtils.writeStringToFile(report, "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<pmd version=\"5.7.0\">\n"
+                + "<file name=\"" + source.getAbsolutePath() + "\">\n"
+                + "<violation beginline=\"3\" endline=\"3\" begincolumn=\"15\" endcolumn=\"36\" "
+                + "rule=\"EmptyCatchBlock\" ruleset=\"Empty Code\" class=\"Main\" priority=\"3\">\n"
+                + "Avoid empty catch blocks\n"
+                + "</violation>\n"
+                + "</file>\n"
+                + "</pmd>\n", UTF_8);
+
+        PmdParser parser = new PmdParser(UTF_8, true, true);
+        long original = parser.parse(report, "module").iterator().next().getContextHashCode();
+        assertEquals("Wrong number of cache misses", 1, parser.getCacheMisses());
+
+        assertEquals(WRONG_WARNING_PROPERTY, original,
+                parser.parse(report, "module").iterator().next().getContextHashCode());
+        assertEquals("Wrong number of cache hits", 1, parser.getCacheHits());
+
+        FileUtils.writeStringToFile(source,
+                "class Main {\n    void run() {\n        try {} catch (Error e) {}\n    }\n}\n", UTF_8);
+        assertFalse("Stale context hash code", original
+                == parser.parse(report, "module").iterator().next().getContextHashCode());
+        assertEquals("Wrong number of cache hits", 2, parser.getCacheHits());
+
+        PmdParser otherEncoding = new PmdParser("ISO-8859-1", true, true);
+        otherEncoding.parse(report, "module");
+        assertEquals("Encoding is not part of the key", 1, otherEncoding.getCacheMisses());
+    }
 
     /**
      * Parses the specified file.
@@ -33,9 +87,24 @@ public class PmdParserTest {
      *             in case of an error
      */
     private Collection<FileAnnotation> parseFile(final String fileName) throws InvocationTargetException {
+        return parseFile(fileName, new PmdParser());
+    }
+
+    /**
+     * Parses the specified file with the specified parser.
+     *
+     * @param fileName
+     *            the file to read
+     * @param parser
+     *            the parser to use
+     * @return the parsed module
+     * @throws InvocationTargetException
+     *             in case of an error
+     */
+    private Collection<FileAnnotation> parseFile(final String fileName, final PmdParser parser) throws InvocationTargetException {
         InputStream file = PmdParserTest.class.getResourceAsStream(fileName);
         try {
-            return new PmdParser().parse(file, "module");
+            return parser.parse(file, "module");
         }
         finally {
             IOUtils.closeQuietly(file);
@@ -194,4 +263,106 @@ public class PmdParserTest {
         assertEquals(ERROR_MESSAGE, 4, module.getPackage("com.avaloq.adt.env.core.db.plsqlCompletion").getNumberOfAnnotations());
         assertEquals(ERROR_MESSAGE, 4, module.getNumberOfAnnotations(Priority.NORMAL));
     }
+
+    /**
+     * Checks whether the streaming parser creates the same warnings as the digester based parser.
+     *
+     * @throws InvocationTargetException
+     *             indicates a test failure
+     */
+    @Test
+    public void streamingParserShouldCreateSameWarnings() throws InvocationTargetException {
+        for (String fileName : new String[] {"pmd.xml", "4-pmd-warnings.xml", "warning-message-with-dot.xml", "empty.xml"}) {
+            Collection<FileAnnotation> expected = parseFile(fileName);
+            Collection<FileAnnotation> actual = parseFile(fileName, new PmdParser("", true));
+
+            assertEquals(ERROR_MESSAGE, expected.size(), actual.size());
+            Iterator<FileAnnotation> actualIterator = actual.iterator();
+            for (FileAnnotation expectedAnnotation : expected) {
+                FileAnnotation actualAnnotation = actualIterator.next();
+
+                assertEquals(WRONG_WARNING_PROPERTY, expectedAnnotation, actualAnnotation);
+                assertEquals(WRONG_WARNING_PROPERTY, expectedAnnotation.getMessage(), actualAnnotation.getMessage());
+                assertEquals(WRONG_WARNING_PROPERTY, expectedAnnotation.getFileName(), actualAnnotation.getFileName());
+                assertEquals(WRONG_WARNING_PROPERTY, expectedAnnotation.getPackageName(), actualAnnotation.getPackageName());
+            }
+        }
+    }
+
+    /**
+     * Checks whether the streaming parser rejects files that are not PMD files.
+     *
+     * @throws InvocationTargetException
+     *             expected
+     */
+    @Test(expected = InvocationTargetException.class)
+    public void streamingParserShouldRejectOtherFiles() throws InvocationTargetException {
+        parseFile("otherfile.xml", new PmdParser("", true));
+    }
+
+    /**
+     * Checks whether the warnings of a parser share the instances of equal names. Messages are not shared, since
+     * they usually contain the names of variables or methods and would fill the pool with distinct values.
+     *
+     * @throws InvocationTargetException
+     *             indicates a test failure
+     */
+    @Test
+    public void shouldShareInstancesOfEqualNames() throws InvocationTargetException {
+        PmdParser parser = new PmdParser();
+        Iterator<FileAnnotation> annotations = parseFile("4-pmd-warnings.xml", parser).iterator();
+        annotations.next();
+        annotations.next();
+        FileAnnotation third = annotations.next();
+        FileAnnotation fourth = annotations.next();
+
+        assertSame(WRONG_WARNING_PROPERTY, third.getCategory(), fourth.getCategory());
+        assertSame(WRONG_WARNING_PROPERTY, third.getType(), fourth.getType());
+        assertSame(WRONG_WARNING_PROPERTY, third.getPackageName(), fourth.getPackageName());
+        assertSame(WRONG_WARNING_PROPERTY, third.getFileName(), fourth.getFileName());
+        assertEquals(WRONG_WARNING_PROPERTY, third.getMessage(), fourth.getMessage());
+
+        FileAnnotation other = parseFile("4-pmd-warnings.xml", parser).iterator().next();
+        assertSame(WRONG_WARNING_PROPERTY, other.getModuleName(), third.getModuleName());
+    }
+
+    /**
+     * Checks whether we correctly parse a gzip compressed file with 4 warnings.
+     *
+     * @throws InvocationTargetException
+     *             indicates a test failure
+     */
+    @Test
+    public void scanCompressedFile() throws InvocationTargetException {
+        assertEquals(ERROR_MESSAGE, 4, parseFile("4-pmd-warnings.xml.gz").size());
+        assertEquals(ERROR_MESSAGE, 4, parseFile("4-pmd-warnings.xml.gz", new PmdParser("", true)).size());
+    }
+
+    /**
+     * Checks whether violations that are rejected by the filter are skipped by both parsers.
+     *
+     * @throws InvocationTargetException
+     *             indicates a test failure
+     */
+    @Test
+    public void shouldSkipFilteredViolations() throws InvocationTargetException {
+        for (boolean useStreamingParser : new boolean[] {false, true}) {
+            ViolationFilter ruleSets = new ViolationFilter();
+            ruleSets.setExcludeRuleSets("Basic*");
+            assertEquals(ERROR_MESSAGE, 1, parseFile("4-pmd-warnings.xml", createParser(useStreamingParser, ruleSets)).size());
+
+            ViolationFilter rules = new ViolationFilter();
+            rules.setIncludeRules("EmptyCatchBlock, UnusedImports");
+            rules.setExcludePriorities("5");
+            assertEquals(ERROR_MESSAGE, 2, parseFile("4-pmd-warnings.xml", createParser(useStreamingParser, rules)).size());
+
+            ViolationFilter files = new ViolationFilter();
+            files.setExcludeFiles("**/dialogs/**");
+            assertEquals(ERROR_MESSAGE, 2, parseFile("4-pmd-warnings.xml", createParser(useStreamingParser, files)).size());
+        }
+    }
+
+    private PmdParser createParser(final boolean useStreamingParser, final ViolationFilter filter) {
+        return new PmdParser("", useStreamingParser, false, filter);
+    }
 }
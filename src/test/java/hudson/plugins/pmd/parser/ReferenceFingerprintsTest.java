@@ -0,0 +1,124 @@
+package hudson.plugins.pmd.parser;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+import hudson.plugins.analysis.util.model.FileAnnotation;
+import hudson.plugins.analysis.util.model.Priority;
+
+/**
+ * Tests the classes {@link ReferenceFingerprints} and {@link ReferenceDifference}.
+ */
+public class ReferenceFingerprintsTest {
+    /** Provides the fingerprints file. */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Verifies that the new and fixed warnings are found using the fingerprints of the reference build and that the
+     * result is the same as the result of the {@link FingerprintDifferencer}.
+     */
+    @Test
+    public void shouldFindNewAndFixedWarnings() {
+        Bug unchanged = createBug(1, 10, 1);
+        Bug moved = createBug(2, 20, 2);
+        Bug fixed = createBug(3, 30, 3);
+        Bug changed = createBug(4, 40, 4);
+        List<FileAnnotation> reference = Arrays.<FileAnnotation>asList(unchanged, moved, fixed, changed);
+
+        Bug movedInCurrent = createBug(2, 21, 2);
+        Bug changedInCurrent = createBug(4, 40, -4);
+        Bug added = createBug(5, 50, 0);
+        List<FileAnnotation> current = Arrays.<FileAnnotation>asList(
+                unchanged, movedInCurrent, changedInCurrent, added);
+
+        ReferenceDifference difference = ReferenceFingerprints.create(reference).compare(current);
+
+        Set<FileAnnotation> newAnnotations = difference.getNewAnnotations(current, reference);
+        assertTrue("New warnings not found", difference.hasNewWarnings());
+        assertTrue("Added warning not found", newAnnotations.contains(added));
+        assertFalse("Moved warning is new", newAnnotations.contains(movedInCurrent));
+        assertEquals("Wrong new warnings", FingerprintDifferencer.getNewAnnotations(current, reference),
+                newAnnotations);
+
+        Set<FileAnnotation> fixedAnnotations = difference.getFixedAnnotations(current, reference);
+        assertTrue("Fixed warnings not found", difference.hasFixedWarnings());
+        assertTrue("Fixed warning not found", fixedAnnotations.contains(fixed));
+        assertFalse("Moved warning is fixed", fixedAnnotations.contains(moved));
+        assertEquals("Wrong fixed warnings", FingerprintDifferencer.getFixedAnnotations(current, reference),
+                fixedAnnotations);
+    }
+
+    /**
+     * Verifies that warnings with another context hash code are compared on the controller like in the
+     * {@link FingerprintDifferencer}: warnings that are equal to a warning of the other build are neither new nor
+     * fixed.
+     */
+    @Test
+    public void shouldCompareWarningsWithOtherContextLikeController() {
+        List<FileAnnotation> reference = Arrays.<FileAnnotation>asList(createBug(1, 10, 1));
+        List<FileAnnotation> current = Arrays.<FileAnnotation>asList(createBug(1, 10, 2));
+
+        ReferenceDifference difference = ReferenceFingerprints.create(reference).compare(current);
+
+        assertTrue("Reference not required", difference.isReferenceRequiredForNewWarnings());
+        assertEquals("Wrong new warnings", FingerprintDifferencer.getNewAnnotations(current, reference),
+                difference.getNewAnnotations(current, reference));
+        assertEquals("Wrong fixed warnings", FingerprintDifferencer.getFixedAnnotations(current, reference),
+                difference.getFixedAnnotations(current, reference));
+    }
+
+    /**
+     * Verifies that the warnings of the reference build are not required if no new warning might be equal to one of
+     * them.
+     */
+    @Test
+    public void shouldNotRequireReferenceForDifferentWarnings() {
+        List<FileAnnotation> reference = Arrays.<FileAnnotation>asList(createBug(1, 10, 1));
+        List<FileAnnotation> current = Arrays.<FileAnnotation>asList(createBug(2, 20, 2));
+
+        ReferenceDifference difference = ReferenceFingerprints.create(reference).compare(current);
+
+        assertFalse("Reference required", difference.isReferenceRequiredForNewWarnings());
+        assertEquals("Wrong number of new warnings", 1,
+                difference.getNewAnnotations(current, Collections.<FileAnnotation>emptyList()).size());
+    }
+
+    /**
+     * Verifies that written fingerprints are read again.
+     *
+     * @throws IOException
+     *             if the fingerprints could not be written
+     */
+    @Test
+    public void shouldReadWrittenFingerprints() throws IOException {
+        List<FileAnnotation> reference = Arrays.<FileAnnotation>asList(
+                createBug(1, 10, 1), createBug(2, 20, 2), createBug(3, 30, 2));
+        File file = folder.newFile();
+
+        ReferenceFingerprints.create(reference).write(file);
+        ReferenceFingerprints fingerprints = ReferenceFingerprints.read(file);
+
+        assertEquals("Wrong number of fingerprints", 2, fingerprints.size());
+        ReferenceDifference difference = fingerprints.compare(reference);
+        assertFalse("New warnings found", difference.hasNewWarnings());
+        assertFalse("Fixed warnings found", difference.hasFixedWarnings());
+    }
+
+    private Bug createBug(final int id, final int line, final int contextHashCode) {
+        Bug bug = new Bug(Priority.NORMAL, "Message " + id, "Basic", "Rule", line);
+        bug.setFileName("/src/File" + id + ".java");
+        bug.setContextHashCode(contextHashCode);
+        return bug;
+    }
+}
@@ -0,0 +1,69 @@
+package hudson.plugins.pmd.parser;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the class {@link RuleDescriptionIndex}.
+ */
+public class RuleDescriptionIndexTest {
+    private static final String VERSION = "5.7.0";
+    private static final String RULE_SET = "Empty Code";
+    private static final String RULE = "EmptyCatchBlock";
+    private static final String DESCRIPTION = "Empty Catch Block finds instances where an exception is caught<pre>ä</pre>";
+
+    /** Provides the index file. */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Verifies that a written index is read again.
+     *
+     * @throws IOException
+     *             if the index could not be written
+     */
+    @Test
+    public void shouldReadWrittenIndex() throws IOException {
+        File file = writeIndex();
+
+        RuleDescriptionIndex index = RuleDescriptionIndex.read(file, VERSION);
+
+        assertNotNull("Index not read", index);
+        assertEquals("Wrong number of rule sets", 2, index.size());
+        assertTrue("Rule set not found", index.contains(RULE_SET));
+        assertEquals("Wrong description", DESCRIPTION, index.get(RULE_SET, RULE));
+        assertEquals("Wrong description", "", index.get("Braces", "IfStmtsMustUseBraces"));
+        assertNull("Unknown rule found", index.get(RULE_SET, "Unknown"));
+        assertFalse("Unknown rule set found", index.contains("Unknown"));
+    }
+
+    /**
+     * Verifies that an index of a different PMD version or a missing index is ignored.
+     *
+     * @throws IOException
+     *             if the index could not be written
+     */
+    @Test
+    public void shouldIgnoreIndexOfOtherVersion() throws IOException {
+        File file = writeIndex();
+
+        assertNull("Index of other version read", RuleDescriptionIndex.read(file, "6.0.0"));
+        assertNull("Missing index read", RuleDescriptionIndex.read(new File(folder.getRoot(), "missing"), VERSION));
+    }
+
+    private File writeIndex() throws IOException {
+        RuleDescriptionIndex index = new RuleDescriptionIndex();
+        index.add(RULE_SET, RULE, DESCRIPTION);
+        index.add("Braces", "IfStmtsMustUseBraces", "");
+
+        File file = new File(folder.getRoot(), "index");
+        index.write(file, VERSION);
+        return file;
+    }
+}
@@ -0,0 +1,59 @@
+package hudson.plugins.pmd.parser;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the class {@link TooltipCache}.
+ */
+public class TooltipCacheTest {
+    private static final String RULE_SET = "Empty Code";
+    private static final String RULE = "EmptyCatchBlock";
+    private static final String TOOLTIP = "Empty Catch Block finds instances where an exception is caught.";
+
+    /**
+     * Verifies that cached tooltips are returned and that hits and misses are counted.
+     */
+    @Test
+    public void shouldCountHitsAndMisses() {
+        TooltipCache cache = new TooltipCache(1000);
+
+        assertNull("Tooltip is cached", cache.get(RULE_SET, RULE));
+        cache.put(RULE_SET, RULE, TOOLTIP);
+        assertEquals("Wrong tooltip", TOOLTIP, cache.get(RULE_SET, RULE));
+        assertEquals("Wrong tooltip", TOOLTIP, cache.get(RULE_SET, RULE));
+
+        assertEquals("Wrong number of hits", 2, cache.getHits());
+        assertEquals("Wrong number of misses", 1, cache.getMisses());
+        assertEquals("Wrong weight", RULE_SET.length() + 1 + RULE.length() + TOOLTIP.length(), cache.getWeight());
+    }
+
+    /**
+     * Verifies that the weight of the cache never exceeds the maximum.
+     */
+    @Test
+    public void shouldEvictEntriesIfFull() {
+        TooltipCache cache = new TooltipCache(200);
+
+        for (int rule = 0; rule < 10; rule++) {
+            cache.put(RULE_SET, RULE + rule, TOOLTIP);
+            assertTrue("Cache is too large", cache.getWeight() <= 200);
+            assertEquals("Wrong tooltip", TOOLTIP, cache.get(RULE_SET, RULE + rule));
+        }
+        assertTrue("Wrong number of entries", cache.size() < 10);
+    }
+
+    /**
+     * Verifies that tooltips that are larger than the cache are not stored.
+     */
+    @Test
+    public void shouldSkipTooltipsThatAreTooLarge() {
+        TooltipCache cache = new TooltipCache(10);
+
+        cache.put(RULE_SET, RULE, TOOLTIP);
+
+        assertEquals("Wrong number of entries", 0, cache.size());
+        assertEquals("Wrong weight", 0, cache.getWeight());
+    }
+}